@@ -7,6 +7,8 @@ export interface ServiceLanguageConfig {
   handler: string;
   assetPath: string;
   buildCommand?: string;
+  // Consumes its EventBridge events in batches from an SQS queue; the handler reports batch item failures
+  sqsBatch?: boolean;
 }
 
 export interface ServiceConfigs {
@@ -81,6 +83,14 @@ export const SERVICE_HANDLERS = {
   }
 };
 
+// Handlers that replace the per-event handler and take their events from an SQS queue
+export const SQS_BATCH_HANDLERS: { [language: string]: Partial<Record<keyof ServiceConfigs, string>> } = {
+  java: {
+    dynamicPricingService: 'com.powertoolsride.dynamicpricingservice.SqsBatchHandler::handleRequest',
+    paymentProcessor: 'com.powertoolsride.paymentprocessor.SqsBatchHandler::handleRequest'
+  }
+};
+
 // Runtime mappings (deprecated - use LANGUAGE_CONFIGS.runtime directly)
 export const RUNTIME_MAPPINGS = {
   dotnet: lambda.Runtime.DOTNET_8,
@@ -93,6 +103,7 @@ export function getServiceConfig(language: string): ServiceConfigs {
   const lang = language as keyof typeof LANGUAGE_CONFIGS;
   const config = LANGUAGE_CONFIGS[lang];
   const handlers = SERVICE_HANDLERS[lang];
+  const sqsBatchHandlers = SQS_BATCH_HANDLERS[lang] ?? {};
 
   if (!config || !handlers) {
     throw new Error(`Unsupported language: ${language}`);
@@ -114,14 +125,16 @@ export function getServiceConfig(language: string): ServiceConfigs {
     dynamicPricingService: {
       language: lang,
       runtime: config.runtime,
-      handler: handlers.dynamicPricingService,
-      assetPath: config.assetPath('dynamic-pricing-service')
+      handler: sqsBatchHandlers.dynamicPricingService ?? handlers.dynamicPricingService,
+      assetPath: config.assetPath('dynamic-pricing-service'),
+      sqsBatch: sqsBatchHandlers.dynamicPricingService !== undefined
     },
     paymentProcessor: {
       language: lang,
       runtime: config.runtime,
-      handler: handlers.paymentProcessor,
-      assetPath: config.assetPath('payment-processor')
+      handler: sqsBatchHandlers.paymentProcessor ?? handlers.paymentProcessor,
+      assetPath: config.assetPath('payment-processor'),
+      sqsBatch: sqsBatchHandlers.paymentProcessor !== undefined
     },
     paymentStreamProcessor: {
       language: lang,
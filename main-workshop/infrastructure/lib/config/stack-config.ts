@@ -16,6 +16,8 @@ export const EXPORT_KEYS = {
   pricingTableName: `${PREFIX}-PricingTableName`,
   idempotencyTableArn: `${PREFIX}-IdempotencyTableArn`,
   idempotencyTableName: `${PREFIX}-IdempotencyTableName`,
+  waitlistTableArn: `${PREFIX}-WaitlistTableArn`,
+  waitlistTableName: `${PREFIX}-WaitlistTableName`,
   eventBusArn: `${PREFIX}-EventBusArn`,
   eventBusName: `${PREFIX}-EventBusName`,
   lambdaExecutionRoleArn: `${PREFIX}-LambdaExecutionRoleArn`,
@@ -33,6 +35,7 @@ export interface InfrastructureReferences {
     payments: { arn: string; name: string; streamArn: string };
     pricing: { arn: string; name: string };
     idempotency: { arn: string; name: string };
+    waitlist: { arn: string; name: string };
   };
   eventBus: { arn: string; name: string };
   executionRole: { arn: string };
@@ -35,6 +35,15 @@ export const CONSTANTS = {
     PAYMENTS: 'powertools-ride-workshop-Payments',
     PRICING: 'powertools-ride-workshop-Pricing',
     IDEMPOTENCY: 'powertools-ride-workshop-IdempotencyTable',
+    WAITLIST: 'powertools-ride-workshop-Waitlist',
+  },
+
+  // SQS Queue Names
+  QUEUE_NAMES: {
+    PAYMENT_REQUESTS: 'powertools-ride-workshop-payment-requests',
+    PAYMENT_REQUESTS_DLQ: 'powertools-ride-workshop-payment-requests-dlq',
+    PRICING_REQUESTS: 'powertools-ride-workshop-pricing-requests',
+    PRICING_REQUESTS_DLQ: 'powertools-ride-workshop-pricing-requests-dlq',
   },
 
   // EventBridge
@@ -33,6 +33,7 @@ export class RiderWorkshopInfrastructureStack extends cdk.Stack {
   public paymentsTable: dynamodb.Table;
   public pricingTable: dynamodb.Table;
   public idempotencyTable: dynamodb.Table;
+  public waitlistTable: dynamodb.Table;
 
   // IAM Roles
   public lambdaExecutionRole: iam.Role;
@@ -161,6 +162,14 @@ export class RiderWorkshopInfrastructureStack extends cdk.Stack {
       partitionKey: { name: 'id', type: dynamodb.AttributeType.STRING },
       timeToLiveAttribute: 'expiration',
     });
+
+    // Rides waiting for a driver: one partition per queue, sorted by wait time and surge
+    this.waitlistTable = new dynamodb.Table(this, 'WaitlistTable', {
+      ...tableDefaults,
+      tableName: CONSTANTS.TABLE_NAMES.WAITLIST,
+      partitionKey: { name: 'queueId', type: dynamodb.AttributeType.STRING },
+      sortKey: { name: 'priorityKey', type: dynamodb.AttributeType.STRING },
+    });
   }
 
   private createSecrets(cleanDeploy?: boolean): void {
@@ -187,9 +196,9 @@ export class RiderWorkshopInfrastructureStack extends cdk.Stack {
       ],
     });
 
-    const tables = [this.ridesTable, this.driversTable, this.paymentsTable, this.pricingTable, this.idempotencyTable];
+    const tables = [this.ridesTable, this.driversTable, this.paymentsTable, this.pricingTable, this.idempotencyTable, this.waitlistTable];
     this.lambdaExecutionRole.addToPolicy(new iam.PolicyStatement({
-      actions: ['dynamodb:GetItem', 'dynamodb:PutItem', 'dynamodb:UpdateItem', 'dynamodb:DeleteItem', 'dynamodb:Scan', 'dynamodb:Query'],
+      actions: ['dynamodb:GetItem', 'dynamodb:BatchGetItem', 'dynamodb:PutItem', 'dynamodb:UpdateItem', 'dynamodb:DeleteItem', 'dynamodb:Scan', 'dynamodb:Query'],
       resources: tables.flatMap(t => [t.tableArn, `${t.tableArn}/index/*`]),
     }));
 
@@ -247,6 +256,8 @@ export class RiderWorkshopInfrastructureStack extends cdk.Stack {
       { id: 'PricingTableName', value: this.pricingTable.tableName, key: EXPORT_KEYS.pricingTableName },
       { id: 'IdempotencyTableArn', value: this.idempotencyTable.tableArn, key: EXPORT_KEYS.idempotencyTableArn },
       { id: 'IdempotencyTableName', value: this.idempotencyTable.tableName, key: EXPORT_KEYS.idempotencyTableName },
+      { id: 'WaitlistTableArn', value: this.waitlistTable.tableArn, key: EXPORT_KEYS.waitlistTableArn },
+      { id: 'WaitlistTableName', value: this.waitlistTable.tableName, key: EXPORT_KEYS.waitlistTableName },
       { id: 'EventBusArn', value: this.eventBus.eventBusArn, key: EXPORT_KEYS.eventBusArn },
       { id: 'EventBusName', value: this.eventBus.eventBusName, key: EXPORT_KEYS.eventBusName },
       { id: 'LambdaExecutionRoleArn', value: this.lambdaExecutionRole.roleArn, key: EXPORT_KEYS.lambdaExecutionRoleArn },
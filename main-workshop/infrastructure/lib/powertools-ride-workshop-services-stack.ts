@@ -6,9 +6,10 @@ import * as apigateway from 'aws-cdk-lib/aws-apigateway';
 import * as events from 'aws-cdk-lib/aws-events';
 import * as targets from 'aws-cdk-lib/aws-events-targets';
 import * as iam from 'aws-cdk-lib/aws-iam';
+import * as sqs from 'aws-cdk-lib/aws-sqs';
 import * as dynamodb from 'aws-cdk-lib/aws-dynamodb';
 import * as lambdaEventSources from 'aws-cdk-lib/aws-lambda-event-sources';
-import { getServiceConfig } from './config/service-config';
+import { getServiceConfig, ServiceConfigs } from './config/service-config';
 import { EXPORT_KEYS, InfrastructureReferences } from './config/stack-config';
 import { CONSTANTS } from './constants';
 
@@ -27,6 +28,7 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
   };
 
   private infrastructureRefs: InfrastructureReferences;
+  private serviceQueues = new Map<lambda.Function, sqs.Queue>();
 
   constructor(scope: Construct, id: string, props: RiderWorkshopServicesStackProps) {
     super(scope, id, props);
@@ -35,9 +37,11 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
     const serviceConfigs = getServiceConfig(props.language);
 
     this.services = this.createServices(serviceConfigs);
+    this.createServiceQueues(serviceConfigs);
     this.addApiGatewayMethods();
     this.createEventBridgeRules();
     this.addStreamEventSources();
+    this.addQueueEventSources();
     this.grantPermissions();
     this.createOutputs(props.language);
   }
@@ -66,6 +70,10 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
           arn: cdk.Fn.importValue(EXPORT_KEYS.idempotencyTableArn),
           name: cdk.Fn.importValue(EXPORT_KEYS.idempotencyTableName),
         },
+        waitlist: {
+          arn: cdk.Fn.importValue(EXPORT_KEYS.waitlistTableArn),
+          name: cdk.Fn.importValue(EXPORT_KEYS.waitlistTableName),
+        },
       },
       eventBus: {
         arn: cdk.Fn.importValue(EXPORT_KEYS.eventBusArn),
@@ -112,7 +120,12 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
         PAYMENTS_TABLE_NAME: this.infrastructureRefs.tables.payments.name,
         PRICING_TABLE_NAME: this.infrastructureRefs.tables.pricing.name,
         IDEMPOTENCY_TABLE_NAME: this.infrastructureRefs.tables.idempotency.name,
+        // Shared by driver-matching-service (enqueue) and ride-completion-service (dispatch)
+        WAITLIST_TABLE_NAME: this.infrastructureRefs.tables.waitlist.name,
         EVENT_BUS_NAME: this.infrastructureRefs.eventBus.name,
+        // Shared by payment-processor and payment-stream-processor: direct | stream | both.
+        // Direct only: one PaymentCompleted per payment keeps ride-completion's dedup off the hot path
+        PAYMENT_COMPLETED_PUBLISHING: 'direct',
         RUSH_HOUR_MULTIPLIER_SECRET_NAME: CONSTANTS.SECRETS.RUSH_HOUR_MULTIPLIER,
         AWS_NODEJS_CONNECTION_REUSE_ENABLED: '1',
         LANGUAGE: config.language.toUpperCase(),
@@ -192,6 +205,8 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
       { id: 'RideCreatedRule', source: 'ride-service', detailType: 'RideCreated', target: this.services.dynamicPricingService },
       { id: 'PriceCalculatedRule', source: 'dynamic-pricing-service', detailType: 'PriceCalculated', target: this.services.driverMatchingService },
       { id: 'DriverAssignedRule', source: 'driver-matching-service', detailType: 'DriverAssigned', target: this.services.paymentProcessor },
+      { id: 'WaitlistDriverAssignedRule', source: 'ride-completion-service', detailType: 'DriverAssigned', target: this.services.paymentProcessor },
+      { id: 'DriverAvailableRule', source: 'ride-completion-service', detailType: 'DriverAvailable', target: this.services.dynamicPricingService },
       { id: 'PaymentCompletedRule', source: 'payment-processor', detailType: 'PaymentCompleted', target: this.services.rideCompletionService },
       { id: 'PaymentFailedRule', source: 'payment-processor', detailType: 'PaymentFailed', target: this.services.rideCompletionService },
       { id: 'StreamPaymentCompletedRule', source: 'payment-stream-processor', detailType: 'PaymentCompleted', target: this.services.rideCompletionService },
@@ -201,8 +216,55 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
       new events.Rule(this, id, {
         eventBus,
         eventPattern: { source: [source], detailType: [detailType] },
-        targets: [new targets.LambdaFunction(target)],
+        targets: [this.ruleTarget(target)],
+      });
+    });
+  }
+
+  // Services with an SQS batch handler get their events through their queue
+  private ruleTarget(target: lambda.Function): events.IRuleTarget {
+    const queue = this.serviceQueues.get(target);
+    if (queue) {
+      return new targets.SqsQueue(queue);
+    }
+    return new targets.LambdaFunction(target);
+  }
+
+  private createServiceQueues(serviceConfigs: ServiceConfigs): void {
+    const queues = [
+      { id: 'PaymentRequests', service: this.services.paymentProcessor, config: serviceConfigs.paymentProcessor,
+        queueName: CONSTANTS.QUEUE_NAMES.PAYMENT_REQUESTS, dlqName: CONSTANTS.QUEUE_NAMES.PAYMENT_REQUESTS_DLQ },
+      { id: 'PricingRequests', service: this.services.dynamicPricingService, config: serviceConfigs.dynamicPricingService,
+        queueName: CONSTANTS.QUEUE_NAMES.PRICING_REQUESTS, dlqName: CONSTANTS.QUEUE_NAMES.PRICING_REQUESTS_DLQ },
+    ];
+
+    queues.filter(({ config }) => config.sqsBatch).forEach(({ id, service, queueName, dlqName }) => {
+      const deadLetterQueue = new sqs.Queue(this, `${id}DLQ`, {
+        queueName: dlqName,
+        retentionPeriod: cdk.Duration.days(14),
+        removalPolicy: cdk.RemovalPolicy.DESTROY,
       });
+
+      this.serviceQueues.set(service, new sqs.Queue(this, `${id}Queue`, {
+        queueName,
+        // Six times the function timeout, so a throttled batch is not redelivered while it still runs
+        visibilityTimeout: cdk.Duration.seconds(180),
+        deadLetterQueue: { queue: deadLetterQueue, maxReceiveCount: 3 },
+        removalPolicy: cdk.RemovalPolicy.DESTROY,
+      }));
+    });
+  }
+
+  private addQueueEventSources(): void {
+    // No batching window: an event is picked up as soon as it arrives, with whatever else is waiting
+    this.serviceQueues.forEach((queue, service) => {
+      service.addEventSource(new lambdaEventSources.SqsEventSource(queue, {
+        batchSize: 10,
+        reportBatchItemFailures: true,
+        metricsConfig: {
+          metrics: [lambda.MetricType.EVENT_COUNT],
+        },
+      }));
     });
   }
 
@@ -224,6 +286,11 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
       filters: [
         lambda.FilterCriteria.filter({
           eventName: lambda.FilterRule.isEqual('MODIFY')
+        }),
+        // Payments written once in their final state (PAYMENT_WRITE_MODE=single) only ever INSERT
+        lambda.FilterCriteria.filter({
+          eventName: lambda.FilterRule.isEqual('INSERT'),
+          dynamodb: { NewImage: { status: { S: lambda.FilterRule.isEqual('completed') } } }
         })
       ],
     }));
@@ -238,6 +305,7 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
       drivers: dynamodb.Table.fromTableArn(this, 'ImportedDriversTable', this.infrastructureRefs.tables.drivers.arn),
       payments: dynamodb.Table.fromTableArn(this, 'ImportedPaymentsTable', this.infrastructureRefs.tables.payments.arn),
       pricing: dynamodb.Table.fromTableArn(this, 'ImportedPricingTable', this.infrastructureRefs.tables.pricing.arn),
+      waitlist: dynamodb.Table.fromTableArn(this, 'ImportedWaitlistTable', this.infrastructureRefs.tables.waitlist.arn),
     };
 
     tables.rides.grantReadWriteData(this.services.rideService);
@@ -249,5 +317,7 @@ export class RiderWorkshopServicesStack extends cdk.Stack {
     tables.payments.grantReadData(this.services.paymentStreamProcessor);
     tables.pricing.grantReadWriteData(this.services.dynamicPricingService);
     tables.pricing.grantReadData(this.services.rideService);
+    tables.waitlist.grantReadWriteData(this.services.driverMatchingService);
+    tables.waitlist.grantReadWriteData(this.services.rideCompletionService);
   }
 }
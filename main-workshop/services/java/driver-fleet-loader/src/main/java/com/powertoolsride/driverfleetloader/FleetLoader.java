@@ -0,0 +1,80 @@
+package com.powertoolsride.driverfleetloader;
+
+import com.powertoolsride.driverfleetloader.generator.FleetGenerator;
+import com.powertoolsride.driverfleetloader.writer.DynamoDbFleetWriter;
+import com.powertoolsride.driverfleetloader.writer.JsonLinesFleetWriter;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulk loader for synthetic driver fleets.
+ *
+ * <pre>
+ * java -cp target/driver-fleet-loader-1.0.0.jar com.powertoolsride.driverfleetloader.FleetLoader \
+ *     --count 100000 --table powertools-ride-workshop-Drivers --output fleet.jsonl
+ * </pre>
+ *
+ * At least one of --table or --output is required. The same --seed always
+ * produces the same fleet, whichever sinks are chosen.
+ */
+public class FleetLoader {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+
+        long count = Long.parseLong(options.getOrDefault("count", "100000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        double availableRatio = Double.parseDouble(options.getOrDefault("available-ratio", "0.6"));
+        double busyRatio = Double.parseDouble(options.getOrDefault("busy-ratio", "0.3"));
+        String tableName = options.get("table");
+        String output = options.get("output");
+
+        if (tableName == null && output == null) {
+            System.err.println("Usage: FleetLoader [--count N] [--seed S] [--concurrency C] "
+                + "[--available-ratio R] [--busy-ratio R] [--table TABLE] [--output FILE]");
+            System.exit(1);
+        }
+
+        FleetGenerator generator = new FleetGenerator(seed, availableRatio, busyRatio);
+
+        if (output != null) {
+            long startTime = System.currentTimeMillis();
+            new JsonLinesFleetWriter().write(generator, count, Path.of(output));
+            System.out.println("Wrote " + count + " drivers to " + output
+                + " in " + (System.currentTimeMillis() - startTime) + " ms");
+        }
+
+        if (tableName != null) {
+            try (DynamoDbClient dynamoDb = DynamoDbClient.builder()
+                    .httpClientBuilder(ApacheHttpClient.builder().maxConnections(concurrency))
+                    .build()) {
+                DynamoDbFleetWriter writer = new DynamoDbFleetWriter(dynamoDb, tableName, concurrency);
+
+                long startTime = System.currentTimeMillis();
+                writer.write(generator, count);
+                long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+
+                System.out.println("Wrote " + writer.getItemsWritten() + " drivers to " + tableName
+                    + " in " + elapsed + " ms (" + (writer.getItemsWritten() * 1000 / elapsed) + " items/s, "
+                    + writer.getRequestsSent() + " requests, "
+                    + writer.getItemsRetried() + " unprocessed items retried)");
+            }
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
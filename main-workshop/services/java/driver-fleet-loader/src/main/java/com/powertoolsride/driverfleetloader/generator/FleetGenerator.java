@@ -0,0 +1,179 @@
+package com.powertoolsride.driverfleetloader.generator;
+
+import com.powertoolsride.driverfleetloader.model.City;
+import com.powertoolsride.driverfleetloader.model.City.Hotspot;
+import com.powertoolsride.driverfleetloader.model.GeneratedDriver;
+import com.powertoolsride.driverfleetloader.model.Location;
+import com.powertoolsride.driverfleetloader.model.VehicleInfo;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates drivers deterministically from a seed and a driver index, so the
+ * same fleet can be produced in any order, in parallel, and more than once
+ * (once for DynamoDB and once for a local file).
+ */
+public class FleetGenerator {
+    private static final double KM_PER_DEGREE_LATITUDE = 111.32;
+
+    private static final List<City> CITIES = List.of(
+        new City("San Francisco", 0.55, 0.8, List.of(
+            new Hotspot("Financial District", 37.7946, -122.3999, 0.18),
+            new Hotspot("SOMA", 37.7849, -122.4094, 0.16),
+            new Hotspot("Mission District", 37.7599, -122.4148, 0.14),
+            new Hotspot("Nob Hill", 37.7928, -122.4161, 0.08),
+            new Hotspot("Castro", 37.7609, -122.4350, 0.08),
+            new Hotspot("Marina District", 37.8006, -122.4429, 0.08),
+            new Hotspot("Richmond", 37.7806, -122.4644, 0.07),
+            new Hotspot("Sunset District", 37.7431, -122.4660, 0.07),
+            new Hotspot("Potrero Hill", 37.7587, -122.4015, 0.07),
+            new Hotspot("SFO Airport", 37.6213, -122.3790, 0.07)
+        )),
+        new City("New York", 0.2, 1.0, List.of(
+            new Hotspot("Midtown", 40.7549, -73.9840, 0.4),
+            new Hotspot("Financial District", 40.7075, -74.0113, 0.25),
+            new Hotspot("Williamsburg", 40.7081, -73.9571, 0.2),
+            new Hotspot("JFK Airport", 40.6413, -73.7781, 0.15)
+        )),
+        new City("Seattle", 0.15, 1.0, List.of(
+            new Hotspot("Downtown", 47.6062, -122.3321, 0.5),
+            new Hotspot("Capitol Hill", 47.6253, -122.3222, 0.3),
+            new Hotspot("SeaTac Airport", 47.4502, -122.3088, 0.2)
+        )),
+        new City("Austin", 0.1, 1.5, List.of(
+            new Hotspot("Downtown", 30.2672, -97.7431, 0.6),
+            new Hotspot("Domain", 30.4021, -97.7253, 0.4)
+        ))
+    );
+
+    private static final String[][] VEHICLES = {
+        {"Toyota", "Prius"}, {"Honda", "Civic"}, {"Tesla", "Model 3"}, {"Nissan", "Leaf"},
+        {"Chevrolet", "Bolt"}, {"Hyundai", "Kona Electric"}, {"Volkswagen", "ID.4"}, {"Ford", "Mustang Mach-E"}
+    };
+    private static final String[] COLORS = {"White", "Black", "Silver", "Blue", "Red", "Gray"};
+    private static final String[] FIRST_NAMES = {
+        "John", "Maria", "David", "Sarah", "Ahmed", "Emma", "Carlos", "Lisa", "Michael", "Anna",
+        "James", "Sofia", "Robert", "Isabella", "Thomas", "Jennifer", "William", "Priya", "Wei", "Fatima"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+        "Hernandez", "Lopez", "Wilson", "Anderson", "Lee", "Nguyen", "Chen", "Patel", "Kim", "Okafor"
+    };
+    private static final List<List<String>> PAYMENT_METHODS = List.of(
+        List.of("pm-credit-card", "pm-somecompany-pay", "pm-google-pay", "pm-cash"),
+        List.of("pm-credit-card", "pm-somecompany-pay", "pm-google-pay"),
+        List.of("pm-credit-card", "pm-somecompany-pay"),
+        List.of("pm-credit-card", "pm-cash"),
+        List.of("pm-credit-card", "pm-google-pay", "pm-cash")
+    );
+
+    private final long seed;
+    private final double availableRatio;
+    private final double busyRatio;
+    private final Instant referenceTime;
+
+    public FleetGenerator(long seed, double availableRatio, double busyRatio) {
+        this.seed = seed;
+        this.availableRatio = availableRatio;
+        this.busyRatio = busyRatio;
+        // Fixed so that regenerating a fleet yields byte-identical output
+        this.referenceTime = Instant.ofEpochSecond(1_735_689_600L);
+    }
+
+    public GeneratedDriver generate(long index) {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+
+        City city = pickCity(random);
+        Hotspot hotspot = pickHotspot(city, random);
+        Location location = scatter(city, hotspot, random);
+
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String[] vehicle = VEHICLES[random.nextInt(VEHICLES.length)];
+        String driverId = String.format("driver-load-%07d", index);
+
+        Instant createdAt = referenceTime.minus(random.nextInt(3 * 365), ChronoUnit.DAYS);
+        Instant updatedAt = referenceTime.minus(random.nextInt(24 * 60), ChronoUnit.MINUTES);
+
+        return new GeneratedDriver(
+            driverId,
+            firstName + " " + lastName,
+            (firstName + "." + lastName + "." + index + "@example.com").toLowerCase(),
+            String.format("+1-555-%07d", index % 10_000_000),
+            String.format("DL%09d", random.nextInt(1_000_000_000)),
+            new VehicleInfo(
+                vehicle[0],
+                vehicle[1],
+                2018 + random.nextInt(8),
+                COLORS[random.nextInt(COLORS.length)],
+                Long.toString(index, 36).toUpperCase()
+            ),
+            location,
+            pickStatus(random),
+            PAYMENT_METHODS.get(random.nextInt(PAYMENT_METHODS.size())),
+            pickRating(random),
+            random.nextInt(5000),
+            createdAt.toString(),
+            updatedAt.toString()
+        );
+    }
+
+    private City pickCity(SplittableRandom random) {
+        double roll = random.nextDouble();
+        double cumulative = 0;
+        for (City city : CITIES) {
+            cumulative += city.weight();
+            if (roll < cumulative) {
+                return city;
+            }
+        }
+        return CITIES.get(CITIES.size() - 1);
+    }
+
+    private Hotspot pickHotspot(City city, SplittableRandom random) {
+        double roll = random.nextDouble();
+        double cumulative = 0;
+        for (Hotspot hotspot : city.hotspots()) {
+            cumulative += hotspot.weight();
+            if (roll < cumulative) {
+                return hotspot;
+            }
+        }
+        return city.hotspots().get(city.hotspots().size() - 1);
+    }
+
+    private Location scatter(City city, Hotspot hotspot, SplittableRandom random) {
+        double northKm = random.nextGaussian() * city.spreadKm();
+        double eastKm = random.nextGaussian() * city.spreadKm();
+        double latitude = hotspot.latitude() + northKm / KM_PER_DEGREE_LATITUDE;
+        double longitude = hotspot.longitude()
+            + eastKm / (KM_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(hotspot.latitude())));
+
+        return new Location(
+            hotspot.name() + ", " + city.name(),
+            Math.round(latitude * 1_000_000) / 1_000_000.0,
+            Math.round(longitude * 1_000_000) / 1_000_000.0
+        );
+    }
+
+    private String pickStatus(SplittableRandom random) {
+        double roll = random.nextDouble();
+        if (roll < availableRatio) {
+            return "available";
+        }
+        if (roll < availableRatio + busyRatio) {
+            return "busy";
+        }
+        return "offline";
+    }
+
+    private double pickRating(SplittableRandom random) {
+        // Ratings cluster just under 5 with a thin tail of poorly rated drivers
+        double rating = 4.75 + random.nextGaussian() * 0.2;
+        rating = Math.max(3.0, Math.min(5.0, rating));
+        return Math.round(rating * 100) / 100.0;
+    }
+}
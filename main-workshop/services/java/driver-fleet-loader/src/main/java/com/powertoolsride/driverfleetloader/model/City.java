@@ -0,0 +1,16 @@
+package com.powertoolsride.driverfleetloader.model;
+
+import java.util.List;
+
+/**
+ * A city is a weighted set of hotspots; drivers scatter around a hotspot
+ * with a normal spread of {@code spreadKm}.
+ */
+public record City(
+    String name,
+    double weight,
+    double spreadKm,
+    List<Hotspot> hotspots
+) {
+    public record Hotspot(String name, double latitude, double longitude, double weight) {}
+}
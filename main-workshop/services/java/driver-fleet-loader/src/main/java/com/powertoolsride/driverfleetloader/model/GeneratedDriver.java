@@ -0,0 +1,21 @@
+package com.powertoolsride.driverfleetloader.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record GeneratedDriver(
+    @JsonProperty("driverId") String driverId,
+    @JsonProperty("driverName") String driverName,
+    @JsonProperty("email") String email,
+    @JsonProperty("phone") String phone,
+    @JsonProperty("licenseNumber") String licenseNumber,
+    @JsonProperty("vehicleInfo") VehicleInfo vehicleInfo,
+    @JsonProperty("currentLocation") Location currentLocation,
+    @JsonProperty("status") String status,
+    @JsonProperty("acceptedPaymentMethods") List<String> acceptedPaymentMethods,
+    @JsonProperty("rating") double rating,
+    @JsonProperty("totalRides") int totalRides,
+    @JsonProperty("createdAt") String createdAt,
+    @JsonProperty("updatedAt") String updatedAt
+) {}
@@ -0,0 +1,9 @@
+package com.powertoolsride.driverfleetloader.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record Location(
+    @JsonProperty("address") String address,
+    @JsonProperty("latitude") double latitude,
+    @JsonProperty("longitude") double longitude
+) {}
@@ -0,0 +1,11 @@
+package com.powertoolsride.driverfleetloader.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record VehicleInfo(
+    @JsonProperty("make") String make,
+    @JsonProperty("model") String model,
+    @JsonProperty("year") int year,
+    @JsonProperty("color") String color,
+    @JsonProperty("licensePlate") String licensePlate
+) {}
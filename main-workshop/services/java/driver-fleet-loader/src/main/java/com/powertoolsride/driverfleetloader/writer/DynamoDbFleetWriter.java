@@ -0,0 +1,174 @@
+package com.powertoolsride.driverfleetloader.writer;
+
+import com.powertoolsride.driverfleetloader.generator.FleetGenerator;
+import com.powertoolsride.driverfleetloader.model.GeneratedDriver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a generated fleet with parallel BatchWriteItem calls, one virtual
+ * thread per 25-item chunk and at most {@code concurrency} requests in flight.
+ *
+ * Unprocessed items are retried with exponential backoff and full jitter. A
+ * shared pacing delay rises whenever any chunk comes back partially
+ * unprocessed and decays on clean writes, so all writers slow down together
+ * while the table is throttling instead of each discovering it separately.
+ */
+public class DynamoDbFleetWriter {
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private static final long BASE_BACKOFF_MILLIS = 25;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final int MAX_ATTEMPTS = 12;
+
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final int concurrency;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong pacingDelayMillis = new AtomicLong();
+    private final AtomicLong itemsWritten = new AtomicLong();
+    private final AtomicLong itemsRetried = new AtomicLong();
+    private final AtomicLong requestsSent = new AtomicLong();
+
+    public DynamoDbFleetWriter(DynamoDbClient dynamoDb, String tableName, int concurrency) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.concurrency = concurrency;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    public void write(FleetGenerator generator, long count) throws Exception {
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<Future<?>> chunks = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long start = 0; start < count; start += MAX_BATCH_SIZE) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(start + MAX_BATCH_SIZE, count);
+
+                inFlight.acquire();
+                chunks.add(executor.submit(() -> {
+                    try {
+                        writeChunk(generator, chunkStart, chunkEnd);
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        }
+    }
+
+    public void writeChunk(FleetGenerator generator, long start, long end) throws InterruptedException {
+        List<WriteRequest> writeRequests = new ArrayList<>(MAX_BATCH_SIZE);
+        for (long index = start; index < end; index++) {
+            writeRequests.add(WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(toItem(generator.generate(index))).build())
+                .build());
+        }
+
+        Map<String, List<WriteRequest>> pending = Map.of(tableName, writeRequests);
+        int attempt = 0;
+
+        while (!pending.isEmpty()) {
+            long pacing = pacingDelayMillis.get();
+            if (pacing > 0) {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(pacing + 1));
+            }
+
+            int pendingCount = pending.getOrDefault(tableName, List.of()).size();
+            Map<String, List<WriteRequest>> unprocessed;
+            try {
+                requestsSent.incrementAndGet();
+                unprocessed = dynamoDb.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(pending)
+                    .build()).unprocessedItems();
+            } catch (ProvisionedThroughputExceededException | RequestLimitExceededException e) {
+                unprocessed = pending;
+            }
+
+            int unprocessedCount = unprocessed.getOrDefault(tableName, List.of()).size();
+            itemsWritten.addAndGet(pendingCount - unprocessedCount);
+
+            if (unprocessedCount == 0) {
+                pacingDelayMillis.updateAndGet(delay -> delay / 2);
+                return;
+            }
+
+            attempt++;
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new RuntimeException("Gave up on " + unprocessedCount + " drivers after " + attempt + " attempts");
+            }
+
+            itemsRetried.addAndGet(unprocessedCount);
+            pacingDelayMillis.updateAndGet(delay -> Math.min(MAX_BACKOFF_MILLIS, Math.max(BASE_BACKOFF_MILLIS, delay * 2)));
+
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+            pending = unprocessed;
+        }
+    }
+
+    public Map<String, AttributeValue> toItem(GeneratedDriver driver) {
+        Map<String, AttributeValue> vehicleInfo = new HashMap<>();
+        vehicleInfo.put("make", AttributeValue.builder().s(driver.vehicleInfo().make()).build());
+        vehicleInfo.put("model", AttributeValue.builder().s(driver.vehicleInfo().model()).build());
+        vehicleInfo.put("year", AttributeValue.builder().n(Integer.toString(driver.vehicleInfo().year())).build());
+        vehicleInfo.put("color", AttributeValue.builder().s(driver.vehicleInfo().color()).build());
+        vehicleInfo.put("licensePlate", AttributeValue.builder().s(driver.vehicleInfo().licensePlate()).build());
+
+        String currentLocation;
+        try {
+            currentLocation = objectMapper.writeValueAsString(driver.currentLocation());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize location", e);
+        }
+
+        // Same attribute layout as scripts/seed-dynamodb-drivers.sh
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("driverId", AttributeValue.builder().s(driver.driverId()).build());
+        item.put("name", AttributeValue.builder().s(driver.driverName()).build());
+        item.put("email", AttributeValue.builder().s(driver.email()).build());
+        item.put("phone", AttributeValue.builder().s(driver.phone()).build());
+        item.put("licenseNumber", AttributeValue.builder().s(driver.licenseNumber()).build());
+        item.put("vehicleInfo", AttributeValue.builder().m(vehicleInfo).build());
+        item.put("status", AttributeValue.builder().s(driver.status()).build());
+        item.put("currentLocation", AttributeValue.builder().s(currentLocation).build());
+        item.put("acceptedPaymentMethods", AttributeValue.builder().ss(driver.acceptedPaymentMethods()).build());
+        item.put("rating", AttributeValue.builder().n(Double.toString(driver.rating())).build());
+        item.put("totalRides", AttributeValue.builder().n(Integer.toString(driver.totalRides())).build());
+        item.put("createdAt", AttributeValue.builder().s(driver.createdAt()).build());
+        item.put("updatedAt", AttributeValue.builder().s(driver.updatedAt()).build());
+        item.put("lastUpdated", AttributeValue.builder().s(driver.updatedAt()).build());
+        return item;
+    }
+
+    public long getItemsWritten() {
+        return itemsWritten.get();
+    }
+
+    public long getItemsRetried() {
+        return itemsRetried.get();
+    }
+
+    public long getRequestsSent() {
+        return requestsSent.get();
+    }
+}
@@ -0,0 +1,37 @@
+package com.powertoolsride.driverfleetloader.writer;
+
+import com.powertoolsride.driverfleetloader.generator.FleetGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a generated fleet as one JSON object per line. Each line carries the
+ * fields of the driver-matching-service {@code Driver} record, so benchmarks
+ * can load the exact fleet that was written to DynamoDB without scanning it.
+ */
+public class JsonLinesFleetWriter {
+    private final ObjectWriter objectWriter;
+
+    public JsonLinesFleetWriter() {
+        this.objectWriter = new ObjectMapper().writer();
+    }
+
+    public void write(FleetGenerator generator, long count, Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            for (long index = 0; index < count; index++) {
+                writer.write(objectWriter.writeValueAsString(generator.generate(index)));
+                writer.newLine();
+            }
+        }
+    }
+}
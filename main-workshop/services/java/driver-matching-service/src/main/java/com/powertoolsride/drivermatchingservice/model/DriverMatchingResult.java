@@ -6,6 +6,7 @@ public class DriverMatchingResult {
     private int availableDriversCount;
     private boolean success;
     private String errorMessage;
+    private String pooledWithRideId;
 
     public DriverMatchingResult() {
     }
@@ -58,4 +59,12 @@ public class DriverMatchingResult {
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
+
+    public String getPooledWithRideId() {
+        return pooledWithRideId;
+    }
+
+    public void setPooledWithRideId(String pooledWithRideId) {
+        this.pooledWithRideId = pooledWithRideId;
+    }
 }
@@ -0,0 +1,12 @@
+package com.powertoolsride.drivermatchingservice.model;
+
+/**
+ * A matched ride that still has room for a pooled rider
+ */
+public record OpenRideRequest(
+    String rideId,
+    Driver driver,
+    Location pickupLocation,
+    Location dropoffLocation,
+    long openedAtMillis
+) {}
@@ -74,6 +74,29 @@ public class DriverRepository {
         dynamoDb.updateItem(updateRequest);
     }
 
+    /**
+     * Records that the driver carries the ride. ride-completion-service takes
+     * each completed ride off again and only frees the driver once none are
+     * left, so a pooled driver is not freed while another rider is aboard.
+     */
+    public void addActiveRide(String driverId, String rideId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("driverId", AttributeValue.builder().s(driverId).build());
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":rideIds", AttributeValue.builder().ss(rideId).build());
+        expressionAttributeValues.put(":updatedAt", AttributeValue.builder().s(Instant.now().toString()).build());
+
+        UpdateItemRequest updateRequest = UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(key)
+            .updateExpression("ADD activeRideIds :rideIds SET updatedAt = :updatedAt")
+            .expressionAttributeValues(expressionAttributeValues)
+            .build();
+
+        dynamoDb.updateItem(updateRequest);
+    }
+
     public Driver deserializeDriver(Map<String, AttributeValue> item) {
         String driverId = item.get("driverId").s();
         String driverName = getDriverName(item);
@@ -0,0 +1,81 @@
+package com.powertoolsride.drivermatchingservice.repository;
+
+import com.powertoolsride.drivermatchingservice.model.PriceCalculatedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rides waiting for a driver, stored under a single queue partition and
+ * ordered by a sort key that combines wait time and surge price.
+ */
+public class WaitlistRepository {
+    public static final String DEFAULT_QUEUE_ID = "rides";
+
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final String queueId;
+    private final long surgeWeightMillis;
+    private final ObjectMapper objectMapper;
+
+    public WaitlistRepository(String tableName) {
+        this.dynamoDb = DynamoDbClient.builder()
+            .overrideConfiguration(software.amazon.awssdk.core.client.config.ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new com.amazonaws.xray.interceptors.TracingInterceptor())
+                .build())
+            .build();
+        this.tableName = tableName;
+        String queueId = System.getenv("WAITLIST_QUEUE_ID");
+        this.queueId = (queueId != null && !queueId.isEmpty()) ? queueId : DEFAULT_QUEUE_ID;
+        String surgeWeight = System.getenv("WAITLIST_SURGE_WEIGHT_SECONDS");
+        this.surgeWeightMillis = (surgeWeight != null && !surgeWeight.isEmpty()) ? Long.parseLong(surgeWeight) * 1000 : 60_000;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    public void enqueue(PriceCalculatedEvent event) {
+        long enqueuedAt = System.currentTimeMillis();
+
+        String detailJson;
+        try {
+            detailJson = objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize waitlisted ride", e);
+        }
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("queueId", AttributeValue.builder().s(queueId).build());
+        item.put("priorityKey", AttributeValue.builder().s(priorityKey(enqueuedAt, event.surgeMultiplier(), event.rideId())).build());
+        item.put("rideId", AttributeValue.builder().s(event.rideId()).build());
+        item.put("detail", AttributeValue.builder().s(detailJson).build());
+        item.put("enqueuedAt", AttributeValue.builder().s(Instant.ofEpochMilli(enqueuedAt).toString()).build());
+
+        PutItemRequest request = PutItemRequest.builder()
+            .tableName(tableName)
+            .item(item)
+            .build();
+
+        dynamoDb.putItem(request);
+    }
+
+    /**
+     * Earlier requests sort first; each 1.0 of surge above the base price moves
+     * a ride ahead by the configured surge weight, so higher-paying rides are
+     * served sooner without starving older ones indefinitely.
+     */
+    public String priorityKey(long enqueuedAtMillis, BigDecimal surgeMultiplier, String rideId) {
+        double surgeAboveBase = surgeMultiplier != null ? Math.max(surgeMultiplier.doubleValue() - 1.0, 0.0) : 0.0;
+        long score = Math.max(enqueuedAtMillis - (long) (surgeAboveBase * surgeWeightMillis), 0);
+        String digits = Long.toString(score);
+        StringBuilder key = new StringBuilder(20 + rideId.length());
+        for (int i = digits.length(); i < 19; i++) {
+            key.append('0');
+        }
+        return key.append(digits).append('#').append(rideId).toString();
+    }
+}
@@ -3,6 +3,8 @@ package com.powertoolsride.drivermatchingservice.service;
 import com.powertoolsride.drivermatchingservice.model.*;
 import com.powertoolsride.drivermatchingservice.repository.DriverRepository;
 import com.powertoolsride.drivermatchingservice.repository.RideRepository;
+import com.powertoolsride.drivermatchingservice.repository.WaitlistRepository;
+import com.powertoolsride.drivermatchingservice.util.GeoUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
@@ -20,6 +22,8 @@ public class DriverMatchingService {
     private final EventBridgeClient eventBridge;
     private final ObjectMapper objectMapper;
     private final String eventBusName;
+    private final RidePoolingIndex poolingIndex;
+    private final WaitlistRepository waitlistRepository;
 
     public DriverMatchingService() {
         this.driverRepository = new DriverRepository();
@@ -31,11 +35,27 @@ public class DriverMatchingService {
             .build();
         this.objectMapper = new ObjectMapper();
         this.eventBusName = System.getenv("EVENT_BUS_NAME");
+        this.poolingIndex = "true".equalsIgnoreCase(System.getenv("RIDE_POOLING_ENABLED"))
+            ? new RidePoolingIndex(
+                getDoubleEnv("POOLING_SEARCH_RADIUS_KM", 1.0),
+                getDoubleEnv("POOLING_DETOUR_BUDGET_KM", 2.0),
+                (long) (getDoubleEnv("POOLING_WINDOW_SECONDS", 120) * 1000),
+                (int) getDoubleEnv("POOLING_MAX_OPEN_RIDES", 10000))
+            : null;
+        String waitlistTableName = System.getenv("WAITLIST_TABLE_NAME");
+        this.waitlistRepository = (waitlistTableName != null && !waitlistTableName.isEmpty())
+            ? new WaitlistRepository(waitlistTableName)
+            : null;
     }
 
     public DriverMatchingResult processRideRequest(com.amazonaws.services.lambda.runtime.events.ScheduledEvent event) {
         PriceCalculatedEvent priceEvent = extractDataFrom(event).as(PriceCalculatedEvent.class);
 
+        DriverMatchingResult pooledResult = tryPoolRide(priceEvent);
+        if (pooledResult != null) {
+            return pooledResult;
+        }
+
         List<Driver> availableDrivers = driverRepository.getAvailableDrivers();
 
         DriverMatchingResult result = new DriverMatchingResult();
@@ -43,6 +63,16 @@ public class DriverMatchingService {
         result.setAvailableDriversCount(availableDrivers.size());
 
         if (availableDrivers.isEmpty()) {
+            if (waitlistRepository != null) {
+                // Re-dispatched by ride-completion-service when a driver becomes available. The
+                // ride must be waitlisted before its entry is visible, or a dispatch could
+                // lease the entry, fail the ride's waitlisted condition and drop it
+                rideRepository.updateRideWithDriver(priceEvent.rideId(), "", "waitlisted");
+                waitlistRepository.enqueue(priceEvent);
+                result.setSuccess(false);
+                result.setErrorMessage("No available drivers, ride waitlisted");
+                return result;
+            }
             rideRepository.updateRideWithDriver(priceEvent.rideId(), "", "no-driver-available");
             result.setSuccess(false);
             result.setErrorMessage("No available drivers");
@@ -54,15 +84,58 @@ public class DriverMatchingService {
         // Commented out for demo purposes - we don't need to track real status in the DB
         // driverRepository.updateDriverStatus(selectedDriver.driverId(), "busy");
         rideRepository.updateRideWithDriver(priceEvent.rideId(), selectedDriver.driverId(), "driver-assigned");
+        driverRepository.addActiveRide(selectedDriver.driverId(), priceEvent.rideId());
 
         DriverAssignedEvent driverAssignedEvent = createDriverAssignedEvent(priceEvent, selectedDriver);
         publishDriverAssignedEvent(driverAssignedEvent);
 
+        if (poolingIndex != null && hasCoordinates(priceEvent)) {
+            poolingIndex.add(new OpenRideRequest(
+                priceEvent.rideId(),
+                selectedDriver,
+                priceEvent.pickupLocation(),
+                priceEvent.dropoffLocation(),
+                System.currentTimeMillis()
+            ));
+        }
+
         result.setSuccess(true);
         result.setAssignedDriverId(selectedDriver.driverId());
         return result;
     }
 
+    public DriverMatchingResult tryPoolRide(PriceCalculatedEvent priceEvent) {
+        if (poolingIndex == null || !hasCoordinates(priceEvent)) {
+            return null;
+        }
+
+        OpenRideRequest openRide = poolingIndex.claimPoolMatch(
+            priceEvent.pickupLocation(),
+            priceEvent.dropoffLocation(),
+            System.currentTimeMillis()
+        );
+        if (openRide == null) {
+            return null;
+        }
+
+        Driver pooledDriver = openRide.driver();
+        rideRepository.updateRideWithDriver(priceEvent.rideId(), pooledDriver.driverId(), "driver-assigned");
+        // Keeps the driver busy until both pooled rides have completed
+        driverRepository.addActiveRide(pooledDriver.driverId(), priceEvent.rideId());
+        publishDriverAssignedEvent(createDriverAssignedEvent(priceEvent, pooledDriver));
+
+        DriverMatchingResult result = new DriverMatchingResult();
+        result.setRideId(priceEvent.rideId());
+        result.setSuccess(true);
+        result.setAssignedDriverId(pooledDriver.driverId());
+        result.setPooledWithRideId(openRide.rideId());
+        return result;
+    }
+
+    private boolean hasCoordinates(PriceCalculatedEvent priceEvent) {
+        return priceEvent.pickupLocation() != null && priceEvent.dropoffLocation() != null;
+    }
+
     public Driver selectClosestDriver(List<Driver> drivers, Location pickupLocation) {
         Driver closestDriver = drivers.get(0);
         double minDistance = Double.MAX_VALUE;
@@ -85,18 +158,7 @@ public class DriverMatchingService {
     }
 
     public double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371;
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+        return GeoUtils.distanceKm(lat1, lon1, lat2, lon2);
     }
 
     public DriverAssignedEvent createDriverAssignedEvent(PriceCalculatedEvent event, Driver driver) {
@@ -149,4 +211,16 @@ public class DriverMatchingService {
             throw new RuntimeException("Failed to send event: " + response.entries().get(0).errorCode());
         }
     }
+
+    private static double getDoubleEnv(String name, double defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(name + " must be a number: " + value, e);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package com.powertoolsride.drivermatchingservice.service;
+
+import com.powertoolsride.drivermatchingservice.model.Location;
+import com.powertoolsride.drivermatchingservice.model.OpenRideRequest;
+import com.powertoolsride.drivermatchingservice.util.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid index of open rides keyed by pickup and dropoff cell, so a pooling
+ * candidate is found by probing the cells around a request instead of
+ * comparing it against every open ride.
+ */
+public class RidePoolingIndex {
+    private final double searchRadiusKm;
+    private final double detourBudgetKm;
+    private final long windowMillis;
+    private final int maxOpenRides;
+    private final double cellSizeDegrees;
+
+    private final Map<Long, List<OpenRideRequest>> pickupCells = new HashMap<>();
+    private final Map<Long, List<OpenRideRequest>> dropoffCells = new HashMap<>();
+    // Insertion order doubles as expiry order for the time window
+    private final LinkedHashMap<String, OpenRideRequest> openRides = new LinkedHashMap<>();
+
+    public RidePoolingIndex(double searchRadiusKm, double detourBudgetKm, long windowMillis, int maxOpenRides) {
+        if (searchRadiusKm <= 0) {
+            throw new IllegalArgumentException("Search radius must be positive");
+        }
+        this.searchRadiusKm = searchRadiusKm;
+        this.detourBudgetKm = detourBudgetKm;
+        this.windowMillis = windowMillis;
+        this.maxOpenRides = maxOpenRides;
+        this.cellSizeDegrees = searchRadiusKm / GeoUtils.KM_PER_DEGREE_LATITUDE;
+    }
+
+    public synchronized void add(OpenRideRequest ride) {
+        remove(ride.rideId());
+        while (openRides.size() >= maxOpenRides) {
+            remove(openRides.keySet().iterator().next());
+        }
+
+        openRides.put(ride.rideId(), ride);
+        pickupCells.computeIfAbsent(cellKey(ride.pickupLocation()), k -> new ArrayList<>()).add(ride);
+        dropoffCells.computeIfAbsent(cellKey(ride.dropoffLocation()), k -> new ArrayList<>()).add(ride);
+    }
+
+    public synchronized OpenRideRequest remove(String rideId) {
+        OpenRideRequest ride = openRides.remove(rideId);
+        if (ride != null) {
+            removeFromCell(pickupCells, cellKey(ride.pickupLocation()), ride);
+            removeFromCell(dropoffCells, cellKey(ride.dropoffLocation()), ride);
+        }
+        return ride;
+    }
+
+    /**
+     * Finds the open ride whose route absorbs the new pickup and dropoff with
+     * the least added distance and removes it from the index, or returns null
+     * when no open ride fits the detour budget.
+     */
+    public synchronized OpenRideRequest claimPoolMatch(Location pickup, Location dropoff, long nowMillis) {
+        evictExpired(nowMillis);
+        if (openRides.isEmpty()) {
+            return null;
+        }
+
+        // Probe whichever end has the sparser neighbourhood and check the other end directly
+        boolean walkPickups = countNearby(pickupCells, pickup) <= countNearby(dropoffCells, dropoff);
+        List<OpenRideRequest> candidates = walkPickups
+            ? collectNearby(pickupCells, pickup, true)
+            : collectNearby(dropoffCells, dropoff, false);
+
+        OpenRideRequest best = null;
+        double bestAddedKm = Double.MAX_VALUE;
+
+        for (OpenRideRequest candidate : candidates) {
+            double otherEndKm = walkPickups
+                ? GeoUtils.distanceKm(candidate.dropoffLocation(), dropoff)
+                : GeoUtils.distanceKm(candidate.pickupLocation(), pickup);
+            if (otherEndKm > searchRadiusKm) {
+                continue;
+            }
+
+            double addedKm = addedDistanceWithinBudget(candidate, pickup, dropoff);
+            if (addedKm < bestAddedKm) {
+                bestAddedKm = addedKm;
+                best = candidate;
+            }
+        }
+
+        if (best != null) {
+            remove(best.rideId());
+        }
+        return best;
+    }
+
+    public synchronized int size() {
+        return openRides.size();
+    }
+
+    /**
+     * Returns the extra distance the shared route adds over both solo trips,
+     * or Double.MAX_VALUE when either rider would exceed the detour budget.
+     * The open ride is picked up first; the new rider is dropped off either
+     * before or after it.
+     */
+    public double addedDistanceWithinBudget(OpenRideRequest open, Location pickup, Location dropoff) {
+        double soloOpen = GeoUtils.distanceKm(open.pickupLocation(), open.dropoffLocation());
+        double soloNew = GeoUtils.distanceKm(pickup, dropoff);
+        double toNewPickup = GeoUtils.distanceKm(open.pickupLocation(), pickup);
+
+        double pickupToOpenDropoff = GeoUtils.distanceKm(pickup, open.dropoffLocation());
+        double openDropoffToDropoff = GeoUtils.distanceKm(open.dropoffLocation(), dropoff);
+
+        double best = Double.MAX_VALUE;
+
+        // open.pickup -> pickup -> dropoff -> open.dropoff: only the open rider detours
+        double newFirstOpenKm = toNewPickup + soloNew + GeoUtils.distanceKm(dropoff, open.dropoffLocation());
+        if (newFirstOpenKm - soloOpen <= detourBudgetKm) {
+            best = newFirstOpenKm - soloOpen - soloNew;
+        }
+
+        // open.pickup -> pickup -> open.dropoff -> dropoff: both riders may detour
+        double openFirstOpenKm = toNewPickup + pickupToOpenDropoff;
+        double openFirstNewKm = pickupToOpenDropoff + openDropoffToDropoff;
+        if (openFirstOpenKm - soloOpen <= detourBudgetKm && openFirstNewKm - soloNew <= detourBudgetKm) {
+            best = Math.min(best, openFirstOpenKm + openDropoffToDropoff - soloOpen - soloNew);
+        }
+        return best;
+    }
+
+    private void evictExpired(long nowMillis) {
+        long cutoff = nowMillis - windowMillis;
+        Iterator<OpenRideRequest> iterator = openRides.values().iterator();
+        while (iterator.hasNext()) {
+            OpenRideRequest ride = iterator.next();
+            if (ride.openedAtMillis() >= cutoff) {
+                break;
+            }
+            iterator.remove();
+            removeFromCell(pickupCells, cellKey(ride.pickupLocation()), ride);
+            removeFromCell(dropoffCells, cellKey(ride.dropoffLocation()), ride);
+        }
+    }
+
+    private int countNearby(Map<Long, List<OpenRideRequest>> cells, Location location) {
+        int count = 0;
+        int latCell = latCell(location.latitude());
+        int lonCell = lonCell(location.longitude());
+        int lonSpan = lonSpan(location.latitude());
+
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -lonSpan; dLon <= lonSpan; dLon++) {
+                List<OpenRideRequest> cell = cells.get(cellKey(latCell + dLat, lonCell + dLon));
+                if (cell != null) {
+                    count += cell.size();
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<OpenRideRequest> collectNearby(Map<Long, List<OpenRideRequest>> cells, Location location, boolean pickupEnd) {
+        List<OpenRideRequest> nearby = new ArrayList<>();
+        int latCell = latCell(location.latitude());
+        int lonCell = lonCell(location.longitude());
+        int lonSpan = lonSpan(location.latitude());
+
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -lonSpan; dLon <= lonSpan; dLon++) {
+                List<OpenRideRequest> cell = cells.get(cellKey(latCell + dLat, lonCell + dLon));
+                if (cell == null) {
+                    continue;
+                }
+                for (OpenRideRequest ride : cell) {
+                    Location end = pickupEnd ? ride.pickupLocation() : ride.dropoffLocation();
+                    if (GeoUtils.distanceKm(end, location) <= searchRadiusKm) {
+                        nearby.add(ride);
+                    }
+                }
+            }
+        }
+        return nearby;
+    }
+
+    private int lonSpan(double latitude) {
+        // Longitude cells narrow away from the equator, so widen the probe accordingly
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        return (int) Math.ceil(1 / cosLat);
+    }
+
+    private void removeFromCell(Map<Long, List<OpenRideRequest>> cells, long key, OpenRideRequest ride) {
+        List<OpenRideRequest> cell = cells.get(key);
+        if (cell == null) {
+            return;
+        }
+        cell.remove(ride);
+        if (cell.isEmpty()) {
+            cells.remove(key);
+        }
+    }
+
+    private long cellKey(Location location) {
+        return cellKey(latCell(location.latitude()), lonCell(location.longitude()));
+    }
+
+    private int latCell(double latitude) {
+        return (int) Math.floor(latitude / cellSizeDegrees);
+    }
+
+    private int lonCell(double longitude) {
+        return (int) Math.floor(longitude / cellSizeDegrees);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
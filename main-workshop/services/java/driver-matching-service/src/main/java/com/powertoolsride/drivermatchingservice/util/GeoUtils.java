@@ -0,0 +1,28 @@
+package com.powertoolsride.drivermatchingservice.util;
+
+import com.powertoolsride.drivermatchingservice.model.Location;
+
+public class GeoUtils {
+    public static final double EARTH_RADIUS_KM = 6371;
+    public static final double KM_PER_DEGREE_LATITUDE = 111.32;
+
+    private GeoUtils() {
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+
+    public static double distanceKm(Location from, Location to) {
+        return distanceKm(from.latitude(), from.longitude(), to.latitude(), to.longitude());
+    }
+}
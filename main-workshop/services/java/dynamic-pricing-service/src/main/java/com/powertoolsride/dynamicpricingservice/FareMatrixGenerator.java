@@ -0,0 +1,30 @@
+package com.powertoolsride.dynamicpricingservice;
+
+import com.powertoolsride.dynamicpricingservice.service.DistanceFareModel;
+
+import java.nio.file.Path;
+
+/**
+ * Precomputes every zone pair of the fare matrix and writes it to a file that
+ * the pricing function maps through FARE_MATRIX_PATH. Reads the same FARE_*
+ * settings as the function, so run it with the function's configuration:
+ *
+ *   java -cp target/dynamic-pricing-service-1.0.0.jar \
+ *     com.powertoolsride.dynamicpricingservice.FareMatrixGenerator fare-matrix.bin
+ */
+public class FareMatrixGenerator {
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: FareMatrixGenerator <output-file>");
+            System.exit(1);
+        }
+
+        long startTime = System.currentTimeMillis();
+        DistanceFareModel fareModel = DistanceFareModel.fromEnvironment(null);
+        fareModel.precompute();
+        fareModel.getMatrix().writeTo(Path.of(args[0]));
+
+        System.out.println("Wrote " + fareModel.getMatrix().zones() + " zones to " + args[0] +
+            " in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+}
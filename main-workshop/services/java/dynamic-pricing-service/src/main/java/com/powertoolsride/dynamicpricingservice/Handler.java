@@ -1,27 +1,37 @@
 package com.powertoolsride.dynamicpricingservice;
 
 import com.powertoolsride.dynamicpricingservice.service.PricingService;
+import com.powertoolsride.dynamicpricingservice.service.RushHourMultiplierProvider;
 import com.powertoolsride.dynamicpricingservice.service.RushHourService;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
+import software.amazon.lambda.powertools.metrics.FlushMetrics;
 
 import java.math.BigDecimal;
 
 public class Handler implements RequestHandler<ScheduledEvent, Void> {
     private final PricingService pricingService;
-    private final RushHourService rushHourService;
+    private final RushHourMultiplierProvider rushHourMultiplierProvider;
 
     public Handler() {
         this.pricingService = new PricingService();
-        this.rushHourService = new RushHourService();
+        RushHourService rushHourService = new RushHourService();
+        this.rushHourMultiplierProvider = RushHourMultiplierProvider.fromEnvironment(rushHourService::getRushHourMultiplier);
     }
 
     @Override
+    @FlushMetrics
     public Void handleRequest(ScheduledEvent event, Context context) {
         try {
-            // Retrieve rush hour multiplier from Secrets Manager
-            BigDecimal rushHourMultiplier = rushHourService.getRushHourMultiplier();
+            // Driver availability only feeds the surge engine's supply counts
+            if ("DriverAvailable".equals(event.getDetailType())) {
+                pricingService.processDriverAvailableEvent(event);
+                return null;
+            }
+
+            // Rush hour multiplier from Secrets Manager, cached across invocations
+            BigDecimal rushHourMultiplier = rushHourMultiplierProvider.getMultiplier();
             System.out.println("Retrieved rush hour multiplier: " + rushHourMultiplier);
 
             // Process the pricing
@@ -29,6 +39,11 @@ public class Handler implements RequestHandler<ScheduledEvent, Void> {
         } catch (Exception e) {
             System.err.println("[ERROR] PRICING_ERROR: " + e.getMessage());
             throw new RuntimeException("Failed to process ride pricing", e);
+        } finally {
+            // Buffered price records must be written before the environment is frozen;
+            // lost writes are logged and counted, never thrown from here
+            pricingService.flushPendingWrites();
+            rushHourMultiplierProvider.flushMetrics();
         }
 
         return null;
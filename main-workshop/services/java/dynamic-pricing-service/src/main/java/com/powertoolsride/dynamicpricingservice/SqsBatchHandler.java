@@ -0,0 +1,86 @@
+package com.powertoolsride.dynamicpricingservice;
+
+import com.powertoolsride.dynamicpricingservice.model.DriverAvailableEvent;
+import com.powertoolsride.dynamicpricingservice.model.RideCreatedEvent;
+import com.powertoolsride.dynamicpricingservice.service.PricingService;
+import com.powertoolsride.dynamicpricingservice.service.RushHourMultiplierProvider;
+import com.powertoolsride.dynamicpricingservice.service.RushHourService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.lambda.powertools.metrics.FlushMetrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lambda handler for RideCreated events delivered through SQS (EventBridge
+ * rule targeting a queue). Prices the whole batch together and reports failed
+ * messages individually; the event source mapping needs ReportBatchItemFailures.
+ */
+public class SqsBatchHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+    private final PricingService pricingService;
+    private final RushHourMultiplierProvider rushHourMultiplierProvider;
+    private final ObjectMapper objectMapper;
+
+    public SqsBatchHandler() {
+        this.pricingService = new PricingService();
+        RushHourService rushHourService = new RushHourService();
+        this.rushHourMultiplierProvider = RushHourMultiplierProvider.fromEnvironment(rushHourService::getRushHourMultiplier);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Override
+    @FlushMetrics
+    public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
+        List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+        List<RideCreatedEvent> rides = new ArrayList<>();
+        Map<String, List<String>> messageIdsByRideId = new HashMap<>();
+
+        for (SQSEvent.SQSMessage message : event.getRecords()) {
+            try {
+                // Message bodies are full EventBridge events; the ride is in "detail"
+                JsonNode envelope = objectMapper.readTree(message.getBody());
+                JsonNode detail = envelope.get("detail");
+
+                if ("DriverAvailable".equals(envelope.path("detail-type").asText())) {
+                    pricingService.recordDriverAvailable(objectMapper.treeToValue(detail, DriverAvailableEvent.class));
+                    continue;
+                }
+
+                RideCreatedEvent ride = objectMapper.treeToValue(detail, RideCreatedEvent.class);
+                rides.add(ride);
+                messageIdsByRideId.computeIfAbsent(ride.rideId(), rideId -> new ArrayList<>()).add(message.getMessageId());
+            } catch (Exception e) {
+                System.err.println("[ERROR] Unreadable pricing message " + message.getMessageId() + ": " + e.getMessage());
+                failures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+            }
+        }
+
+        if (!rides.isEmpty()) {
+            BigDecimal rushHourMultiplier = rushHourMultiplierProvider.getMultiplier();
+            Set<String> failedRideIds = pricingService.processRideBatch(rides, rushHourMultiplier);
+
+            for (String rideId : failedRideIds) {
+                for (String messageId : messageIdsByRideId.getOrDefault(rideId, List.of())) {
+                    failures.add(new SQSBatchResponse.BatchItemFailure(messageId));
+                }
+            }
+
+            System.out.println("Priced batch of " + rides.size() + " rides with rush hour multiplier " +
+                rushHourMultiplier + ", failed: " + failedRideIds.size());
+        }
+
+        rushHourMultiplierProvider.flushMetrics();
+        return new SQSBatchResponse(failures);
+    }
+}
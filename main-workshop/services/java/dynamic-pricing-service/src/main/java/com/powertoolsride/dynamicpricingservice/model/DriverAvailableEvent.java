@@ -0,0 +1,12 @@
+package com.powertoolsride.dynamicpricingservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record DriverAvailableEvent(
+    @JsonProperty("driverId") String driverId,
+    @JsonProperty("location") Location location,
+    @JsonProperty("timestamp") String timestamp,
+    @JsonProperty("eventType") String eventType
+) {}
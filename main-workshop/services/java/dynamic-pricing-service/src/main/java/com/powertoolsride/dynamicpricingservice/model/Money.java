@@ -0,0 +1,196 @@
+package com.powertoolsride.dynamicpricingservice.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount in cents. Arithmetic rounds HALF_UP to the cent like the
+ * {@code setScale(2, RoundingMode.HALF_UP)} calls it replaces, and amounts
+ * are written as plain two-decimal numbers ("12.50") in both JSON and
+ * DynamoDB {@code N} attributes.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public record Money(long cents) implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private static final int MAX_MULTIPLIER_SCALE = 9;
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    // Longest formatted amount: sign, 17 integer digits, point and 2 decimals
+    private static final int MAX_FORMAT_LENGTH = 24;
+
+    public static Money ofCents(long cents) {
+        return new Money(cents);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses a plain decimal such as "12.5" or "-0.07", rounding HALF_UP past
+     * the second decimal place. Exponent notation falls back to BigDecimal.
+     */
+    public static Money parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long units = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        boolean anyDigit = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (fractionDigits < 0) {
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                } else if (fractionDigits < 2) {
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = c >= '5';
+                    fractionDigits++;
+                }
+            } else {
+                return of(new BigDecimal(chars, offset, length));
+            }
+        }
+        if (!anyDigit) {
+            throw new NumberFormatException("Not a monetary amount: " + new String(chars, offset, length));
+        }
+
+        for (int scale = Math.max(fractionDigits, 0); scale < 2; scale++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        if (roundUp) {
+            units = Math.addExact(units, 1);
+        }
+        return new Money(negative ? -units : units);
+    }
+
+    public static Money parse(String amount) {
+        return parse(amount.toCharArray(), 0, amount.length());
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(cents, other.cents));
+    }
+
+    /**
+     * Multiplies by {@code units / 10^scale}, rounding HALF_UP to the cent.
+     */
+    public Money times(long units, int scale) {
+        long product = Math.multiplyExact(cents, units);
+        long divisor = POWERS_OF_TEN[scale];
+        long quotient = product / divisor;
+        long remainder = Math.abs(product % divisor);
+        if (remainder * 2 >= divisor) {
+            quotient += product < 0 ? -1 : 1;
+        }
+        return new Money(quotient);
+    }
+
+    public Money times(BigDecimal multiplier) {
+        BigDecimal normalized = multiplier.stripTrailingZeros();
+        if (normalized.scale() < 0) {
+            normalized = normalized.setScale(0);
+        }
+        if (normalized.scale() <= MAX_MULTIPLIER_SCALE && normalized.unscaledValue().bitLength() < 32) {
+            try {
+                return times(normalized.unscaledValue().longValue(), normalized.scale());
+            } catch (ArithmeticException e) {
+                // The intermediate product overflowed a long; the result may still fit
+            }
+        }
+        return of(toBigDecimal().multiply(multiplier));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Writes the amount into {@code buffer} ending at {@code end} and returns
+     * the index of its first character.
+     */
+    public int formatInto(char[] buffer, int end) {
+        long magnitude = Math.abs(cents);
+        int i = end;
+        buffer[--i] = (char) ('0' + magnitude % 10);
+        magnitude /= 10;
+        buffer[--i] = (char) ('0' + magnitude % 10);
+        magnitude /= 10;
+        buffer[--i] = '.';
+        do {
+            buffer[--i] = (char) ('0' + magnitude % 10);
+            magnitude /= 10;
+        } while (magnitude > 0);
+        if (cents < 0) {
+            buffer[--i] = '-';
+        }
+        return i;
+    }
+
+    public StringBuilder appendTo(StringBuilder builder) {
+        char[] buffer = new char[MAX_FORMAT_LENGTH];
+        int start = formatInto(buffer, buffer.length);
+        return builder.append(buffer, start, buffer.length - start);
+    }
+
+    @Override
+    public String toString() {
+        char[] buffer = new char[MAX_FORMAT_LENGTH];
+        int start = formatInto(buffer, buffer.length);
+        return new String(buffer, start, buffer.length - start);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    public static class Serializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            char[] buffer = new char[MAX_FORMAT_LENGTH];
+            int start = value.formatInto(buffer, buffer.length);
+            gen.writeNumber(buffer, start, buffer.length - start);
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            // Numbers and strings both expose their raw characters, so no String is built
+            char[] chars = p.getTextCharacters();
+            if (chars == null) {
+                return ctxt.reportInputMismatch(Money.class, "Expected a monetary amount");
+            }
+            return parse(chars, p.getTextOffset(), p.getTextLength());
+        }
+    }
+}
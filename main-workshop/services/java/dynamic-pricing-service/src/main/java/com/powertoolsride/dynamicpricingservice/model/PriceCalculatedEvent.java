@@ -9,8 +9,8 @@ public record PriceCalculatedEvent(
     @JsonProperty("riderName") String riderName,
     @JsonProperty("pickupLocation") Location pickupLocation,
     @JsonProperty("dropoffLocation") Location dropoffLocation,
-    @JsonProperty("estimatedPrice") BigDecimal estimatedPrice,
-    @JsonProperty("basePrice") BigDecimal basePrice,
+    @JsonProperty("estimatedPrice") Money estimatedPrice,
+    @JsonProperty("basePrice") Money basePrice,
     @JsonProperty("surgeMultiplier") BigDecimal surgeMultiplier,
     @JsonProperty("paymentMethod") String paymentMethod,
     @JsonProperty("timestamp") String timestamp,
@@ -4,8 +4,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
 
 public record PriceCalculation(
-    @JsonProperty("basePrice") BigDecimal basePrice,
-    @JsonProperty("finalPrice") BigDecimal finalPrice,
+    @JsonProperty("basePrice") Money basePrice,
+    @JsonProperty("finalPrice") Money finalPrice,
     @JsonProperty("surgeMultiplier") BigDecimal surgeMultiplier,
     @JsonProperty("createdAt") String createdAt
 ) {}
@@ -6,8 +6,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public record PricingResult(
     @JsonProperty("rideId") String rideId,
     @JsonProperty("riderId") String riderId,
-    @JsonProperty("finalPrice") BigDecimal finalPrice,
-    @JsonProperty("basePrice") BigDecimal basePrice,
+    @JsonProperty("finalPrice") Money finalPrice,
+    @JsonProperty("basePrice") Money basePrice,
     @JsonProperty("surgeMultiplier") BigDecimal surgeMultiplier,
     @JsonProperty("success") boolean success,
     @JsonProperty("errorMessage") String errorMessage
@@ -1,14 +1,33 @@
 package com.powertoolsride.dynamicpricingservice.repository;
 
+import com.powertoolsride.dynamicpricingservice.model.Money;
 import com.powertoolsride.dynamicpricingservice.model.PriceCalculation;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class PricingRepository {
+    public static final int MAX_BATCH_WRITE_SIZE = 25;
+
+    private static final int MAX_BATCH_WRITE_ATTEMPTS = 4;
+    private static final long BATCH_WRITE_BACKOFF_MILLIS = 50;
+
     private final DynamoDbClient dynamoDb;
     private final String tableName;
 
@@ -23,18 +42,174 @@ public class PricingRepository {
     }
 
     public void savePriceCalculation(String rideId, PriceCalculation calculation) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put("rideId", AttributeValue.builder().s(rideId).build());
-        item.put("basePrice", AttributeValue.builder().n(String.format("%.2f", calculation.basePrice())).build());
-        item.put("finalPrice", AttributeValue.builder().n(String.format("%.2f", calculation.finalPrice())).build());
-        item.put("surgeMultiplier", AttributeValue.builder().n(String.format("%.2f", calculation.surgeMultiplier())).build());
-        item.put("createdAt", AttributeValue.builder().s(calculation.createdAt()).build());
+        PutItemRequest request = PutItemRequest.builder()
+            .tableName(tableName)
+            .item(toItem(rideId, calculation))
+            .build();
+
+        dynamoDb.putItem(request);
+    }
+
+    /**
+     * A price claimed by an earlier delivery, and whether that delivery
+     * got as far as publishing it.
+     */
+    public record StoredClaim(PriceCalculation calculation, boolean published, long claimedAtMillis) {}
+
+    /**
+     * Saves the calculation as an unpublished claim, only if the ride has not
+     * been priced before. Returns null when this call claimed the ride, or
+     * the stored claim when an earlier delivery already did.
+     */
+    public StoredClaim claimPriceCalculation(String rideId, PriceCalculation calculation) {
+        Map<String, AttributeValue> item = toItem(rideId, calculation);
+        item.put("published", AttributeValue.builder().bool(false).build());
+        item.put("claimedAt", AttributeValue.builder().n(Long.toString(System.currentTimeMillis())).build());
 
         PutItemRequest request = PutItemRequest.builder()
             .tableName(tableName)
             .item(item)
+            .conditionExpression("attribute_not_exists(rideId)")
+            .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
             .build();
 
-        dynamoDb.putItem(request);
+        try {
+            dynamoDb.putItem(request);
+            return null;
+        } catch (ConditionalCheckFailedException e) {
+            if (e.item() == null || e.item().isEmpty()) {
+                throw new RuntimeException("Ride " + rideId + " was already priced but its price could not be read", e);
+            }
+            Map<String, AttributeValue> stored = e.item();
+            // Items written without a claim are only saved once published
+            boolean published = !stored.containsKey("published") || Boolean.TRUE.equals(stored.get("published").bool());
+            long claimedAt = stored.containsKey("claimedAt") ? Long.parseLong(stored.get("claimedAt").n()) : 0;
+            return new StoredClaim(fromItem(stored), published, claimedAt);
+        }
+    }
+
+    /**
+     * Takes over an unpublished claim from a delivery that is presumed dead.
+     * Returns false when another delivery took it over or published first.
+     */
+    public boolean takeOverClaim(String rideId, long claimedAtMillis) {
+        return updateClaim(rideId, "SET claimedAt = :now",
+            "published = :false AND claimedAt = :claimedAt",
+            Map.of(":now", AttributeValue.builder().n(Long.toString(System.currentTimeMillis())).build(),
+                ":false", AttributeValue.builder().bool(false).build(),
+                ":claimedAt", AttributeValue.builder().n(Long.toString(claimedAtMillis)).build()));
+    }
+
+    /**
+     * Lets the next delivery publish the claimed price right away, after
+     * this one failed to.
+     */
+    public void releaseClaim(String rideId) {
+        updateClaim(rideId, "SET claimedAt = :zero",
+            "published = :false",
+            Map.of(":zero", AttributeValue.builder().n("0").build(),
+                ":false", AttributeValue.builder().bool(false).build()));
+    }
+
+    public void markPublished(String rideId) {
+        updateClaim(rideId, "SET published = :true",
+            "attribute_exists(rideId)",
+            Map.of(":true", AttributeValue.builder().bool(true).build()));
+    }
+
+    private boolean updateClaim(String rideId, String updateExpression, String conditionExpression,
+                                Map<String, AttributeValue> values) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(Map.of("rideId", AttributeValue.builder().s(rideId).build()))
+            .updateExpression(updateExpression)
+            .conditionExpression(conditionExpression)
+            .expressionAttributeValues(values)
+            .build();
+
+        try {
+            dynamoDb.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes calculations with BatchWriteItem, 25 per request, retrying
+     * unprocessed items with backoff. Returns the rideIds that could not be
+     * written.
+     */
+    public Set<String> savePriceCalculations(Map<String, PriceCalculation> calculations) {
+        Set<String> failedRideIds = new HashSet<>();
+        List<WriteRequest> chunk = new ArrayList<>(MAX_BATCH_WRITE_SIZE);
+
+        for (Map.Entry<String, PriceCalculation> entry : calculations.entrySet()) {
+            chunk.add(WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(toItem(entry.getKey(), entry.getValue())).build())
+                .build());
+            if (chunk.size() == MAX_BATCH_WRITE_SIZE) {
+                failedRideIds.addAll(writeChunk(chunk));
+                chunk = new ArrayList<>(MAX_BATCH_WRITE_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            failedRideIds.addAll(writeChunk(chunk));
+        }
+
+        return failedRideIds;
+    }
+
+    private Set<String> writeChunk(List<WriteRequest> chunk) {
+        List<WriteRequest> pending = chunk;
+
+        for (int attempt = 0; attempt < MAX_BATCH_WRITE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(BATCH_WRITE_BACKOFF_MILLIS << attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            try {
+                pending = dynamoDb.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(tableName, pending))
+                        .build())
+                    .unprocessedItems()
+                    .getOrDefault(tableName, List.of());
+            } catch (ProvisionedThroughputExceededException e) {
+                System.err.println("[WARN] Pricing batch write throttled: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Pricing batch write failed: " + e.getMessage());
+                break;
+            }
+        }
+
+        Set<String> failedRideIds = new HashSet<>();
+        for (WriteRequest request : pending) {
+            failedRideIds.add(request.putRequest().item().get("rideId").s());
+        }
+        return failedRideIds;
+    }
+
+    private Map<String, AttributeValue> toItem(String rideId, PriceCalculation calculation) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("rideId", AttributeValue.builder().s(rideId).build());
+        item.put("basePrice", AttributeValue.builder().n(calculation.basePrice().toString()).build());
+        item.put("finalPrice", AttributeValue.builder().n(calculation.finalPrice().toString()).build());
+        item.put("surgeMultiplier", AttributeValue.builder().n(calculation.surgeMultiplier().setScale(2, RoundingMode.HALF_UP).toPlainString()).build());
+        item.put("createdAt", AttributeValue.builder().s(calculation.createdAt()).build());
+        return item;
+    }
+
+    private PriceCalculation fromItem(Map<String, AttributeValue> item) {
+        return new PriceCalculation(
+            Money.parse(item.get("basePrice").n()),
+            Money.parse(item.get("finalPrice").n()),
+            new BigDecimal(item.get("surgeMultiplier").n()),
+            item.containsKey("createdAt") ? item.get("createdAt").s() : null
+        );
     }
 }
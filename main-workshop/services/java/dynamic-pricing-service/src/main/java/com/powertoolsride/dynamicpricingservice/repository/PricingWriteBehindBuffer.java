@@ -0,0 +1,154 @@
+package com.powertoolsride.dynamicpricingservice.repository;
+
+import com.powertoolsride.dynamicpricingservice.model.PriceCalculation;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bounded buffer of price calculations persisted by a background thread in
+ * BatchWriteItem chunks, so callers can publish without waiting on DynamoDB.
+ *
+ * {@link #drain()} must run before the invocation returns: Lambda freezes
+ * background threads between invocations, so anything left buffered would
+ * sit unwritten until the next one. When the buffer is full, the write
+ * happens on the caller's thread instead.
+ */
+public class PricingWriteBehindBuffer {
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+
+    private final PricingRepository repository;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Queue<PendingWrite> failedWrites = new ConcurrentLinkedQueue<>();
+    private final Object drainLock = new Object();
+    private int pending;
+
+    private record PendingWrite(String rideId, PriceCalculation calculation) {}
+
+    public PricingWriteBehindBuffer(PricingRepository repository, int capacity) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Thread.ofPlatform().daemon().name("pricing-write-behind").start(this::flushLoop);
+    }
+
+    public static PricingWriteBehindBuffer fromEnvironment(PricingRepository repository) {
+        String capacity = System.getenv("PRICING_WRITE_BUFFER_CAPACITY");
+        return new PricingWriteBehindBuffer(repository,
+            (capacity != null && !capacity.isEmpty()) ? Integer.parseInt(capacity) : 1000);
+    }
+
+    public void enqueue(String rideId, PriceCalculation calculation) {
+        synchronized (drainLock) {
+            pending++;
+        }
+
+        if (!queue.offer(new PendingWrite(rideId, calculation))) {
+            metrics.addMetric("PricingWriteBufferOverflow", 1, MetricUnit.COUNT);
+            try {
+                repository.savePriceCalculation(rideId, calculation);
+            } finally {
+                completed(1);
+            }
+            return;
+        }
+
+        metrics.addMetric("PricingWriteBufferDepth", queue.size(), MetricUnit.COUNT);
+    }
+
+    /**
+     * Blocks until every enqueued write has been attempted, then retries the
+     * failed ones with PutItem on the calling thread. Records that still
+     * cannot be written are logged and counted in PricingWriteFailed rather
+     * than thrown: their PriceCalculated events are already out, and failing
+     * the invocation would only get the ride priced and published again.
+     * Returns the number of lost records.
+     */
+    public int drain() {
+        synchronized (drainLock) {
+            while (pending > 0) {
+                try {
+                    drainLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.err.println("[ERROR] Interrupted while draining " + pending + " price calculations");
+                    return pending;
+                }
+            }
+        }
+
+        int lost = 0;
+        PendingWrite write;
+        while ((write = failedWrites.poll()) != null) {
+            try {
+                repository.savePriceCalculation(write.rideId(), write.calculation());
+            } catch (RuntimeException e) {
+                lost++;
+                System.err.println("[ERROR] Failed to persist price calculation for ride " + write.rideId() + ": " + e.getMessage());
+            }
+        }
+
+        if (lost > 0) {
+            metrics.addMetric("PricingWriteFailed", lost, MetricUnit.COUNT);
+        }
+        return lost;
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(PricingRepository.MAX_BATCH_WRITE_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, PricingRepository.MAX_BATCH_WRITE_SIZE - 1);
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        long startTime = System.nanoTime();
+
+        // BatchWriteItem rejects two writes to the same key; the latest price wins
+        Map<String, PriceCalculation> calculations = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            calculations.put(write.rideId(), write.calculation());
+        }
+
+        Set<String> failedRideIds;
+        try {
+            failedRideIds = repository.savePriceCalculations(calculations);
+        } catch (RuntimeException e) {
+            failedRideIds = calculations.keySet();
+        }
+        for (PendingWrite write : batch) {
+            if (failedRideIds.contains(write.rideId())) {
+                failedWrites.add(write);
+            }
+        }
+
+        metrics.addMetric("PricingWriteFlushLatency", (System.nanoTime() - startTime) / 1_000_000.0, MetricUnit.MILLISECONDS);
+        metrics.addMetric("PricingWriteFlushSize", batch.size(), MetricUnit.COUNT);
+        completed(batch.size());
+    }
+
+    private void completed(int writes) {
+        synchronized (drainLock) {
+            pending -= writes;
+            if (pending == 0) {
+                drainLock.notifyAll();
+            }
+        }
+    }
+}
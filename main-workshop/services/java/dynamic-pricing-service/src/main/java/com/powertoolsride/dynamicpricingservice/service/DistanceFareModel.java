@@ -0,0 +1,128 @@
+package com.powertoolsride.dynamicpricingservice.service;
+
+import com.powertoolsride.dynamicpricingservice.model.Location;
+import com.powertoolsride.dynamicpricingservice.model.Money;
+import com.powertoolsride.dynamicpricingservice.util.GeoUtils;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Base fare from trip distance and estimated duration:
+ * base + perKm * km + perMinute * minutes, never below the minimum fare.
+ *
+ * Trips between two zones of the fare matrix are priced centre to centre and
+ * served from the matrix after the first lookup. Trips within one zone or
+ * outside the matrix bounds are computed exactly from their coordinates.
+ */
+public class DistanceFareModel {
+    public static final String DEFAULT_BOUNDS = "37.60,-122.52,37.84,-122.35";
+
+    private final int baseFareCents;
+    private final int perKmCents;
+    private final int perMinuteCents;
+    private final int minimumFareCents;
+    private final double roadDistanceFactor;
+    private final double averageSpeedKmh;
+    private final FareMatrix matrix;
+
+    public DistanceFareModel(int baseFareCents, int perKmCents, int perMinuteCents, int minimumFareCents,
+                             double roadDistanceFactor, double averageSpeedKmh, FareMatrix matrix) {
+        this.baseFareCents = baseFareCents;
+        this.perKmCents = perKmCents;
+        this.perMinuteCents = perMinuteCents;
+        this.minimumFareCents = minimumFareCents;
+        this.roadDistanceFactor = roadDistanceFactor;
+        this.averageSpeedKmh = averageSpeedKmh;
+        this.matrix = matrix;
+    }
+
+    public static DistanceFareModel fromEnvironment() {
+        return fromEnvironment(System.getenv("FARE_MATRIX_PATH"));
+    }
+
+    public static DistanceFareModel fromEnvironment(String matrixPath) {
+        int baseFareCents = Integer.parseInt(getEnv("FARE_BASE_CENTS", "250"));
+        int perKmCents = Integer.parseInt(getEnv("FARE_PER_KM_CENTS", "120"));
+        int perMinuteCents = Integer.parseInt(getEnv("FARE_PER_MINUTE_CENTS", "30"));
+        int minimumFareCents = Integer.parseInt(getEnv("FARE_MINIMUM_CENTS", "500"));
+        double roadDistanceFactor = Double.parseDouble(getEnv("FARE_ROAD_DISTANCE_FACTOR", "1.3"));
+        double averageSpeedKmh = Double.parseDouble(getEnv("FARE_AVERAGE_SPEED_KMH", "25"));
+        int fingerprint = Objects.hash(baseFareCents, perKmCents, perMinuteCents, minimumFareCents,
+            roadDistanceFactor, averageSpeedKmh);
+
+        FareMatrix matrix = null;
+        if (matrixPath != null && !matrixPath.isEmpty()) {
+            matrix = FareMatrix.map(Path.of(matrixPath));
+            if (matrix.fingerprint() != fingerprint) {
+                System.err.println("[WARN] Fare matrix " + matrixPath + " was built with different fare settings, ignoring it");
+                matrix = null;
+            }
+        }
+        if (matrix == null) {
+            String[] bounds = getEnv("FARE_MATRIX_BOUNDS", DEFAULT_BOUNDS).split(",");
+            matrix = FareMatrix.inMemory(
+                Integer.parseInt(getEnv("FARE_MATRIX_PRECISION", "6")),
+                Double.parseDouble(bounds[0].trim()),
+                Double.parseDouble(bounds[1].trim()),
+                Double.parseDouble(bounds[2].trim()),
+                Double.parseDouble(bounds[3].trim()),
+                fingerprint
+            );
+        }
+
+        return new DistanceFareModel(baseFareCents, perKmCents, perMinuteCents, minimumFareCents,
+            roadDistanceFactor, averageSpeedKmh, matrix);
+    }
+
+    public Money baseFare(Location pickup, Location dropoff) {
+        int fromZone = matrix.zoneOf(pickup.latitude(), pickup.longitude());
+        int toZone = matrix.zoneOf(dropoff.latitude(), dropoff.longitude());
+        if (fromZone < 0 || toZone < 0 || fromZone == toZone) {
+            return Money.ofCents(exactFareCents(pickup.latitude(), pickup.longitude(),
+                dropoff.latitude(), dropoff.longitude()));
+        }
+
+        int fareCents = matrix.get(fromZone, toZone);
+        if (fareCents == 0) {
+            fareCents = zoneFareCents(fromZone, toZone);
+            matrix.put(fromZone, toZone, fareCents);
+        }
+        return Money.ofCents(fareCents);
+    }
+
+    public int exactFareCents(double fromLat, double fromLon, double toLat, double toLon) {
+        double distanceKm = GeoUtils.distanceKm(fromLat, fromLon, toLat, toLon) * roadDistanceFactor;
+        double minutes = distanceKm / averageSpeedKmh * 60;
+        long fareCents = baseFareCents + Math.round(distanceKm * perKmCents + minutes * perMinuteCents);
+        return (int) Math.max(fareCents, minimumFareCents);
+    }
+
+    /**
+     * Fills every zone pair so that a matrix written afterwards needs no
+     * computation at runtime.
+     */
+    public void precompute() {
+        for (int fromZone = 0; fromZone < matrix.zones(); fromZone++) {
+            for (int toZone = 0; toZone < matrix.zones(); toZone++) {
+                if (fromZone != toZone) {
+                    matrix.put(fromZone, toZone, zoneFareCents(fromZone, toZone));
+                }
+            }
+        }
+    }
+
+    public FareMatrix getMatrix() {
+        return matrix;
+    }
+
+    private int zoneFareCents(int fromZone, int toZone) {
+        return exactFareCents(matrix.zoneLatitude(fromZone), matrix.zoneLongitude(fromZone),
+            matrix.zoneLatitude(toZone), matrix.zoneLongitude(toZone));
+    }
+
+    private static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return (value != null && !value.isEmpty()) ? value : defaultValue;
+    }
+}
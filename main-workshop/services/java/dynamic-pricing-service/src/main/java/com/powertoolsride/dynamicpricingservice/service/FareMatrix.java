@@ -0,0 +1,135 @@
+package com.powertoolsride.dynamicpricingservice.service;
+
+import com.powertoolsride.dynamicpricingservice.util.Geohash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Zone-to-zone fares in cents for the geohash cells inside a bounding box,
+ * one int per (origin, destination) pair, with zero marking a pair that has
+ * not been computed.
+ *
+ * The fares live either in a heap buffer filled as pairs are first priced,
+ * or in a file written by {@link #writeTo} and mapped read-only, in which
+ * case lookups never copy it onto the heap.
+ */
+public class FareMatrix {
+    private static final int MAGIC = 0x46415245;
+    private static final int HEADER_INTS = 7;
+
+    private final int precision;
+    private final int minLatCell;
+    private final int minLonCell;
+    private final int rows;
+    private final int cols;
+    private final int zones;
+    private final int fingerprint;
+    private final IntBuffer fares;
+
+    private FareMatrix(int precision, int minLatCell, int minLonCell, int rows, int cols, int fingerprint, IntBuffer fares) {
+        this.precision = precision;
+        this.minLatCell = minLatCell;
+        this.minLonCell = minLonCell;
+        this.rows = rows;
+        this.cols = cols;
+        this.zones = rows * cols;
+        this.fingerprint = fingerprint;
+        this.fares = fares;
+    }
+
+    public static FareMatrix inMemory(int precision, double minLat, double minLon, double maxLat, double maxLon,
+                                      int fingerprint) {
+        int minLatCell = Geohash.latitudeCell(minLat, precision);
+        int minLonCell = Geohash.longitudeCell(minLon, precision);
+        int rows = Geohash.latitudeCell(maxLat, precision) - minLatCell + 1;
+        int cols = Geohash.longitudeCell(maxLon, precision) - minLonCell + 1;
+
+        long entries = (long) rows * cols * rows * cols;
+        if (rows <= 0 || cols <= 0 || entries > Integer.MAX_VALUE - HEADER_INTS) {
+            throw new IllegalArgumentException("Fare matrix bounds give " + rows + "x" + cols + " zones at precision " + precision);
+        }
+
+        return new FareMatrix(precision, minLatCell, minLonCell, rows, cols, fingerprint, IntBuffer.allocate((int) entries));
+    }
+
+    public static FareMatrix map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IntBuffer ints = buffer.asIntBuffer();
+            if (ints.capacity() < HEADER_INTS || ints.get(0) != MAGIC) {
+                throw new IllegalStateException("Not a fare matrix file: " + path);
+            }
+
+            int rows = ints.get(4);
+            int cols = ints.get(5);
+            IntBuffer fares = ints.slice(HEADER_INTS, ints.capacity() - HEADER_INTS);
+            if (fares.capacity() != rows * cols * rows * cols) {
+                throw new IllegalStateException("Truncated fare matrix file: " + path);
+            }
+
+            return new FareMatrix(ints.get(1), ints.get(2), ints.get(3), rows, cols, ints.get(6), fares);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map fare matrix " + path, e);
+        }
+    }
+
+    public void writeTo(Path path) {
+        ByteBuffer buffer = ByteBuffer.allocate((HEADER_INTS + zones * zones) * Integer.BYTES);
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(MAGIC).put(precision).put(minLatCell).put(minLonCell).put(rows).put(cols).put(fingerprint);
+        ints.put(fares.duplicate().clear());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write fare matrix " + path, e);
+        }
+    }
+
+    /**
+     * Returns the zone index for the point, or -1 outside the bounding box.
+     */
+    public int zoneOf(double latitude, double longitude) {
+        int row = Geohash.latitudeCell(latitude, precision) - minLatCell;
+        int col = Geohash.longitudeCell(longitude, precision) - minLonCell;
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    public int get(int fromZone, int toZone) {
+        return fares.get(fromZone * zones + toZone);
+    }
+
+    public void put(int fromZone, int toZone, int fareCents) {
+        if (!fares.isReadOnly()) {
+            fares.put(fromZone * zones + toZone, fareCents);
+        }
+    }
+
+    public double zoneLatitude(int zone) {
+        return Geohash.latitudeCellCenter(minLatCell + zone / cols, precision);
+    }
+
+    public double zoneLongitude(int zone) {
+        return Geohash.longitudeCellCenter(minLonCell + zone % cols, precision);
+    }
+
+    public int zones() {
+        return zones;
+    }
+
+    public int fingerprint() {
+        return fingerprint;
+    }
+}
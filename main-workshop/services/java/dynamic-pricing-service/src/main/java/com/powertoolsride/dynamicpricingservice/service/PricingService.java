@@ -1,12 +1,18 @@
 package com.powertoolsride.dynamicpricingservice.service;
 
+import com.powertoolsride.dynamicpricingservice.model.DriverAvailableEvent;
+import com.powertoolsride.dynamicpricingservice.model.Money;
 import com.powertoolsride.dynamicpricingservice.model.PriceCalculatedEvent;
 import com.powertoolsride.dynamicpricingservice.model.PriceCalculation;
 import com.powertoolsride.dynamicpricingservice.model.PricingResult;
 import com.powertoolsride.dynamicpricingservice.model.RideCreatedEvent;
 import com.powertoolsride.dynamicpricingservice.repository.PricingRepository;
+import com.powertoolsride.dynamicpricingservice.repository.PricingWriteBehindBuffer;
 import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
@@ -15,23 +21,39 @@ import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
 
 import static software.amazon.lambda.powertools.utilities.EventDeserializer.extractDataFrom;
 
 public class PricingService {
-    private static final BigDecimal MIN_BASE_PRICE = new BigDecimal("5.0");
-    private static final BigDecimal MAX_BASE_PRICE = new BigDecimal("20.0");
+    private static final long MIN_BASE_PRICE_CENTS = 500;
+    private static final long MAX_BASE_PRICE_CENTS = 2000;
+    private static final int MAX_PUT_EVENTS_ENTRIES = 10;
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
     
     private final PricingRepository repository;
+    private final PricingWriteBehindBuffer writeBehindBuffer;
     private final EventBridgeClient eventBridge;
     private final ObjectMapper objectMapper;
     private final String eventBusName;
     private final Random random;
+    private final SurgeEngine surgeEngine;
+    private final DistanceFareModel fareModel;
+    private final RecentPriceCache recentPrices;
+    private final long claimTimeoutMillis;
 
     public PricingService() {
         this.repository = new PricingRepository();
+        this.writeBehindBuffer = "write-behind".equalsIgnoreCase(System.getenv("PRICING_WRITE_MODE"))
+            ? PricingWriteBehindBuffer.fromEnvironment(repository)
+            : null;
         this.eventBridge = EventBridgeClient.builder()
             .overrideConfiguration(software.amazon.awssdk.core.client.config.ClientOverrideConfiguration.builder()
                 .addExecutionInterceptor(new com.amazonaws.xray.interceptors.TracingInterceptor())
@@ -40,6 +62,14 @@ public class PricingService {
         this.objectMapper = new ObjectMapper();
         this.eventBusName = System.getenv("EVENT_BUS_NAME");
         this.random = new Random();
+        this.surgeEngine = Boolean.parseBoolean(System.getenv("SURGE_ENGINE_ENABLED")) ? SurgeEngine.fromEnvironment() : null;
+        this.fareModel = "distance".equalsIgnoreCase(System.getenv("FARE_MODEL")) ? DistanceFareModel.fromEnvironment() : null;
+        String memoSize = System.getenv("PRICING_MEMO_SIZE");
+        this.recentPrices = Boolean.parseBoolean(System.getenv("PRICING_DEDUP_ENABLED"))
+            ? new RecentPriceCache((memoSize != null && !memoSize.isEmpty()) ? Integer.parseInt(memoSize) : 10_000)
+            : null;
+        String claimTimeout = System.getenv("PRICING_CLAIM_TIMEOUT_SECONDS");
+        this.claimTimeoutMillis = ((claimTimeout != null && !claimTimeout.isEmpty()) ? Long.parseLong(claimTimeout) : 30) * 1000;
     }
 
     public PricingResult processRideCreatedEvent(ScheduledEvent event, BigDecimal rushHourMultiplier) {
@@ -48,6 +78,23 @@ public class PricingService {
         return processRideForPricing(rideEvent, rushHourMultiplier);
     }
 
+    public void processDriverAvailableEvent(ScheduledEvent event) {
+        if (surgeEngine == null) {
+            return;
+        }
+
+        recordDriverAvailable(extractDataFrom(event).as(DriverAvailableEvent.class));
+    }
+
+    public void recordDriverAvailable(DriverAvailableEvent driverEvent) {
+        if (surgeEngine == null || driverEvent.location() == null) {
+            return;
+        }
+
+        surgeEngine.recordSupply(driverEvent.location().latitude(), driverEvent.location().longitude(),
+            System.currentTimeMillis());
+    }
+
     public PricingResult processRideForPricing(RideCreatedEvent rideEvent, BigDecimal rushHourMultiplier) {
         if (rideEvent.pickupLocation() == null || rideEvent.destinationLocation() == null) {
             return new PricingResult(
@@ -61,12 +108,114 @@ public class PricingService {
             );
         }
 
-        PriceCalculation calculation = calculatePrice(rushHourMultiplier);
-        repository.savePriceCalculation(rideEvent.rideId(), calculation);
+        if (recentPrices != null) {
+            return processRideOnce(rideEvent, rushHourMultiplier);
+        }
+
+        PriceCalculation calculation = calculatePrice(rideEvent, resolveSurgeMultiplier(rideEvent, rushHourMultiplier));
+        recordDemand(rideEvent);
+
+        // Nothing reads the Pricing table before matching, so in write-behind
+        // mode the record is persisted while the event is being published
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.enqueue(rideEvent.rideId(), calculation);
+        } else {
+            repository.savePriceCalculation(rideEvent.rideId(), calculation);
+        }
         
         PriceCalculatedEvent priceEvent = createPriceCalculatedEvent(rideEvent, calculation);
         publishPriceCalculatedEvent(priceEvent);
 
+        return toPricingResult(rideEvent, calculation);
+    }
+
+    /**
+     * Prices and publishes a ride at most once. A redelivery is answered with
+     * the original price from the warm-container cache, or from the Pricing
+     * item that the conditional put found, without writing or publishing.
+     * A claim whose delivery never published is published by the next one,
+     * with the price stored in the claim.
+     */
+    private PricingResult processRideOnce(RideCreatedEvent rideEvent, BigDecimal rushHourMultiplier) {
+        PriceCalculation original = recentPrices.get(rideEvent.rideId());
+        if (original != null) {
+            return suppressDuplicate(rideEvent, original);
+        }
+
+        // The claim has to land before publishing, so this write is never deferred
+        Claim claim = claim(rideEvent.rideId(),
+            calculatePrice(rideEvent, resolveSurgeMultiplier(rideEvent, rushHourMultiplier)));
+        if (claim.won()) {
+            recordDemand(rideEvent);
+        }
+        if (claim.alreadyPublished()) {
+            return suppressDuplicate(rideEvent, claim.calculation());
+        }
+
+        try {
+            publishPriceCalculatedEvent(createPriceCalculatedEvent(rideEvent, claim.calculation()));
+        } catch (RuntimeException e) {
+            releaseClaim(rideEvent.rideId());
+            throw e;
+        }
+
+        markPublished(rideEvent.rideId(), claim.calculation());
+        return toPricingResult(rideEvent, claim.calculation());
+    }
+
+    private record Claim(PriceCalculation calculation, boolean alreadyPublished, boolean won) {}
+
+    /**
+     * Claims the ride for this delivery. Throws while another delivery holds
+     * an unpublished claim younger than PRICING_CLAIM_TIMEOUT_SECONDS, so
+     * this one is retried rather than lost. Only a claim this delivery wrote
+     * itself is {@code won}; a taken-over one was counted by its first owner.
+     */
+    private Claim claim(String rideId, PriceCalculation calculation) {
+        PricingRepository.StoredClaim stored = repository.claimPriceCalculation(rideId, calculation);
+        if (stored == null) {
+            return new Claim(calculation, false, true);
+        }
+
+        if (stored.published()) {
+            recentPrices.put(rideId, stored.calculation());
+            return new Claim(stored.calculation(), true, false);
+        }
+
+        if (System.currentTimeMillis() - stored.claimedAtMillis() < claimTimeoutMillis
+                || !repository.takeOverClaim(rideId, stored.claimedAtMillis())) {
+            throw new RuntimeException("Ride " + rideId + " is being priced by another delivery");
+        }
+        metrics.addMetric("PricingClaimResumed", 1, MetricUnit.COUNT);
+        return new Claim(stored.calculation(), false, false);
+    }
+
+    private void releaseClaim(String rideId) {
+        try {
+            repository.releaseClaim(rideId);
+        } catch (RuntimeException e) {
+            // The claim then times out before the next delivery can publish it
+            System.err.println("[WARN] Failed to release pricing claim for ride " + rideId + ": " + e.getMessage());
+        }
+    }
+
+    private void markPublished(String rideId, PriceCalculation calculation) {
+        recentPrices.put(rideId, calculation);
+        try {
+            repository.markPublished(rideId);
+        } catch (RuntimeException e) {
+            // A redelivery after the claim timeout would publish the same price once more
+            System.err.println("[WARN] Failed to mark ride " + rideId + " as published: " + e.getMessage());
+        }
+    }
+
+    private PricingResult suppressDuplicate(RideCreatedEvent rideEvent, PriceCalculation original) {
+        metrics.addMetric("PricingDuplicateSuppressed", 1, MetricUnit.COUNT);
+        System.out.println("Ride " + rideEvent.rideId() + " was already priced at " + original.finalPrice() + ", skipping");
+        return toPricingResult(rideEvent, original);
+    }
+
+    private PricingResult toPricingResult(RideCreatedEvent rideEvent, PriceCalculation calculation) {
         return new PricingResult(
             rideEvent.rideId(),
             rideEvent.riderId(),
@@ -78,13 +227,133 @@ public class PricingService {
         );
     }
 
+    public void flushPendingWrites() {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.drain();
+        }
+    }
+
+    /**
+     * Prices a batch of rides with one BatchWriteItem per 25 rides and one
+     * PutEvents per 10. Returns the rideIds that were not both saved and
+     * published. Rides with missing locations are dropped rather than failed,
+     * since retrying them cannot succeed. With dedup on, each ride goes
+     * through the same conditional claim as a single delivery instead.
+     */
+    public Set<String> processRideBatch(List<RideCreatedEvent> rideEvents, BigDecimal rushHourMultiplier) {
+        Map<String, RideCreatedEvent> rides = new LinkedHashMap<>();
+        Map<String, PriceCalculation> calculations = new LinkedHashMap<>();
+        Set<String> failedRideIds = new HashSet<>();
+
+        for (RideCreatedEvent rideEvent : rideEvents) {
+            if (rideEvent.pickupLocation() == null || rideEvent.destinationLocation() == null) {
+                System.err.println("[WARN] Skipping ride " + rideEvent.rideId() + ": missing required fields");
+                continue;
+            }
+            if (recentPrices != null && recentPrices.get(rideEvent.rideId()) != null) {
+                metrics.addMetric("PricingDuplicateSuppressed", 1, MetricUnit.COUNT);
+                continue;
+            }
+            // Redelivered copies of a ride in the same batch are priced once
+            if (rides.putIfAbsent(rideEvent.rideId(), rideEvent) != null) {
+                continue;
+            }
+
+            PriceCalculation calculation = calculatePrice(rideEvent, resolveSurgeMultiplier(rideEvent, rushHourMultiplier));
+            if (recentPrices == null) {
+                recordDemand(rideEvent);
+                calculations.put(rideEvent.rideId(), calculation);
+                continue;
+            }
+
+            try {
+                Claim claim = claim(rideEvent.rideId(), calculation);
+                if (claim.won()) {
+                    recordDemand(rideEvent);
+                }
+                if (claim.alreadyPublished()) {
+                    metrics.addMetric("PricingDuplicateSuppressed", 1, MetricUnit.COUNT);
+                } else {
+                    calculations.put(rideEvent.rideId(), claim.calculation());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[WARN] Failed to claim ride " + rideEvent.rideId() + ": " + e.getMessage());
+                failedRideIds.add(rideEvent.rideId());
+            }
+        }
+
+        if (recentPrices == null) {
+            failedRideIds.addAll(repository.savePriceCalculations(calculations));
+        }
+
+        List<PriceCalculatedEvent> priceEvents = new ArrayList<>(calculations.size());
+        for (Map.Entry<String, PriceCalculation> entry : calculations.entrySet()) {
+            if (!failedRideIds.contains(entry.getKey())) {
+                priceEvents.add(createPriceCalculatedEvent(rides.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        Set<String> unpublished = publishPriceCalculatedEvents(priceEvents);
+        failedRideIds.addAll(unpublished);
+
+        if (recentPrices != null) {
+            for (Map.Entry<String, PriceCalculation> entry : calculations.entrySet()) {
+                if (unpublished.contains(entry.getKey())) {
+                    releaseClaim(entry.getKey());
+                } else if (!failedRideIds.contains(entry.getKey())) {
+                    markPublished(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return failedRideIds;
+    }
+
+    private BigDecimal resolveSurgeMultiplier(RideCreatedEvent rideEvent, BigDecimal rushHourMultiplier) {
+        if (surgeEngine == null) {
+            return rushHourMultiplier;
+        }
+
+        // The ride is priced on the demand before it, then counted by recordDemand
+        BigDecimal zoneMultiplier = surgeEngine.getMultiplier(rideEvent.pickupLocation().latitude(),
+            rideEvent.pickupLocation().longitude(), System.currentTimeMillis());
+        return rushHourMultiplier.multiply(zoneMultiplier).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Counts the ride as demand once this delivery owns its price, so
+     * redeliveries that are suppressed do not raise the surge.
+     */
+    private void recordDemand(RideCreatedEvent rideEvent) {
+        if (surgeEngine == null) {
+            return;
+        }
+
+        surgeEngine.recordDemand(rideEvent.pickupLocation().latitude(), rideEvent.pickupLocation().longitude(),
+            System.currentTimeMillis());
+    }
+
+    public PriceCalculation calculatePrice(RideCreatedEvent rideEvent, BigDecimal rushHourMultiplier) {
+        if (fareModel == null) {
+            // With dedup on, a ride's random base price is derived from its id so every attempt agrees
+            double randomValue = recentPrices != null
+                ? new SplittableRandom(rideEvent.rideId().hashCode()).nextDouble()
+                : random.nextDouble();
+            return calculatePrice(rushHourMultiplier, randomValue);
+        }
+
+        Money basePrice = fareModel.baseFare(rideEvent.pickupLocation(), rideEvent.destinationLocation());
+        return new PriceCalculation(basePrice, basePrice.times(rushHourMultiplier), rushHourMultiplier, Instant.now().toString());
+    }
+
     public PriceCalculation calculatePrice(BigDecimal rushHourMultiplier) {
-        double randomValue = random.nextDouble();
-        BigDecimal range = MAX_BASE_PRICE.subtract(MIN_BASE_PRICE);
-        BigDecimal basePrice = MIN_BASE_PRICE.add(range.multiply(BigDecimal.valueOf(randomValue)));
-        basePrice = basePrice.setScale(2, RoundingMode.HALF_UP);
-        
-        BigDecimal finalPrice = basePrice.multiply(rushHourMultiplier).setScale(2, RoundingMode.HALF_UP);
+        return calculatePrice(rushHourMultiplier, random.nextDouble());
+    }
+
+    private PriceCalculation calculatePrice(BigDecimal rushHourMultiplier, double randomValue) {
+        long range = MAX_BASE_PRICE_CENTS - MIN_BASE_PRICE_CENTS;
+        Money basePrice = Money.ofCents(MIN_BASE_PRICE_CENTS + Math.round(range * randomValue));
+
+        Money finalPrice = basePrice.times(rushHourMultiplier);
         
         return new PriceCalculation(basePrice, finalPrice, rushHourMultiplier, Instant.now().toString());
     }
@@ -110,6 +379,59 @@ public class PricingService {
             return;
         }
 
+        PutEventsRequest request = PutEventsRequest.builder()
+            .entries(toEventEntry(event))
+            .build();
+
+        PutEventsResponse response = eventBridge.putEvents(request);
+        
+        if (response.failedEntryCount() > 0) {
+            throw new RuntimeException("Failed to send event: " + response.entries().get(0).errorCode());
+        }
+    }
+
+    /**
+     * Publishes in chunks of 10 and returns the rideIds whose entries were
+     * rejected or whose request failed outright.
+     */
+    public Set<String> publishPriceCalculatedEvents(List<PriceCalculatedEvent> events) {
+        Set<String> failedRideIds = new HashSet<>();
+        if (eventBusName == null || eventBusName.isEmpty()) {
+            return failedRideIds;
+        }
+
+        for (int start = 0; start < events.size(); start += MAX_PUT_EVENTS_ENTRIES) {
+            List<PriceCalculatedEvent> chunk = events.subList(start, Math.min(start + MAX_PUT_EVENTS_ENTRIES, events.size()));
+            try {
+                List<PutEventsRequestEntry> entries = new ArrayList<>(chunk.size());
+                for (PriceCalculatedEvent event : chunk) {
+                    entries.add(toEventEntry(event));
+                }
+
+                PutEventsResponse response = eventBridge.putEvents(PutEventsRequest.builder()
+                    .entries(entries)
+                    .build());
+
+                if (response.failedEntryCount() > 0) {
+                    // Result entries line up with request entries by position
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (response.entries().get(i).errorCode() != null) {
+                            failedRideIds.add(chunk.get(i).rideId());
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Failed to publish PriceCalculated batch: " + e.getMessage());
+                for (PriceCalculatedEvent event : chunk) {
+                    failedRideIds.add(event.rideId());
+                }
+            }
+        }
+
+        return failedRideIds;
+    }
+
+    private PutEventsRequestEntry toEventEntry(PriceCalculatedEvent event) {
         String eventDetailJson;
         try {
             eventDetailJson = objectMapper.writeValueAsString(event);
@@ -117,21 +439,11 @@ public class PricingService {
             throw new RuntimeException("Failed to serialize event", e);
         }
 
-        PutEventsRequestEntry entry = PutEventsRequestEntry.builder()
+        return PutEventsRequestEntry.builder()
             .source("dynamic-pricing-service")
             .detailType("PriceCalculated")
             .detail(eventDetailJson)
             .eventBusName(eventBusName)
             .build();
-
-        PutEventsRequest request = PutEventsRequest.builder()
-            .entries(entry)
-            .build();
-
-        PutEventsResponse response = eventBridge.putEvents(request);
-        
-        if (response.failedEntryCount() > 0) {
-            throw new RuntimeException("Failed to send event: " + response.entries().get(0).errorCode());
-        }
     }
 }
@@ -0,0 +1,32 @@
+package com.powertoolsride.dynamicpricingservice.service;
+
+import com.powertoolsride.dynamicpricingservice.model.PriceCalculation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of prices computed in this execution environment, checked
+ * before the Pricing table so that a redelivery to a warm container costs no
+ * DynamoDB call at all.
+ */
+public class RecentPriceCache {
+    private final Map<String, PriceCalculation> entries;
+
+    public RecentPriceCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PriceCalculation> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized PriceCalculation get(String rideId) {
+        return entries.get(rideId);
+    }
+
+    public synchronized void put(String rideId, PriceCalculation calculation) {
+        entries.put(rideId, calculation);
+    }
+}
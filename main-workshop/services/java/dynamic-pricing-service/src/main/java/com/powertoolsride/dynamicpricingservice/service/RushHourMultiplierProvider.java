@@ -0,0 +1,189 @@
+package com.powertoolsride.dynamicpricingservice.service;
+
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serves the rush hour multiplier from a volatile snapshot.
+ *
+ * Within the TTL a read is a single volatile load. Once a snapshot passes the
+ * refresh-ahead point, the first caller to see it hands a reload to a
+ * background thread and every caller, including that one, keeps being served
+ * the current value. An expired snapshot is reloaded inline under the same
+ * lock the background reload holds, so there is only ever one load in flight;
+ * callers queued behind a failed load do not retry it. When a reload fails the
+ * last known value is served until it is older than the max-stale limit.
+ *
+ * Reads only bump counters; {@link #flushMetrics} publishes them once per
+ * invocation.
+ */
+public class RushHourMultiplierProvider {
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+
+    private final Supplier<BigDecimal> loader;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final long maxStaleNanos;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean refreshAheadPending = new AtomicBoolean();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("rush-hour-multiplier-refresh").daemon().factory());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshErrors = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+
+    private volatile Snapshot snapshot;
+    // Only written with the refresh lock held
+    private volatile long failedReloads;
+
+    private record Snapshot(BigDecimal multiplier, long loadedAtNanos) {}
+
+    public RushHourMultiplierProvider(Supplier<BigDecimal> loader, long ttlSeconds, double refreshAheadRatio,
+                                      long maxStaleSeconds) {
+        this.loader = loader;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.refreshAheadNanos = (long) (ttlNanos * refreshAheadRatio);
+        this.maxStaleNanos = Math.max(maxStaleSeconds * 1_000_000_000L, ttlNanos);
+    }
+
+    public static RushHourMultiplierProvider fromEnvironment(Supplier<BigDecimal> loader) {
+        return new RushHourMultiplierProvider(
+            loader,
+            Long.parseLong(getEnv("RUSH_HOUR_MULTIPLIER_TTL_SECONDS", "300")),
+            Double.parseDouble(getEnv("RUSH_HOUR_MULTIPLIER_REFRESH_AHEAD_RATIO", "0.8")),
+            Long.parseLong(getEnv("RUSH_HOUR_MULTIPLIER_MAX_STALE_SECONDS", "3600"))
+        );
+    }
+
+    public BigDecimal getMultiplier() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+
+        if (current != null) {
+            long age = now - current.loadedAtNanos();
+            if (age < ttlNanos) {
+                hits.increment();
+                if (age >= refreshAheadNanos && refreshAheadPending.compareAndSet(false, true)) {
+                    refreshExecutor.execute(() -> refreshAhead(current));
+                }
+                return current.multiplier();
+            }
+        }
+
+        misses.increment();
+        long failuresBefore = failedReloads;
+        refreshLock.lock();
+        try {
+            Snapshot latest = snapshot;
+            if (latest != current && System.nanoTime() - latest.loadedAtNanos() < ttlNanos) {
+                // Reloaded by the caller we queued behind
+                return latest.multiplier();
+            }
+            if (failedReloads != failuresBefore) {
+                throw new IllegalStateException("Rush hour multiplier reload failed while waiting for it");
+            }
+            return reload().multiplier();
+        } catch (RuntimeException e) {
+            if (current != null && now - current.loadedAtNanos() < maxStaleNanos) {
+                staleServed.increment();
+                System.err.println("[WARN] Serving stale rush hour multiplier after refresh failure: " + e.getMessage());
+                return current.multiplier();
+            }
+            throw e;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the reads and reloads since the last call. Called once per
+     * invocation.
+     */
+    public void flushMetrics() {
+        long hitCount = hits.sumThenReset();
+        long missCount = misses.sumThenReset();
+        long staleCount = staleServed.sumThenReset();
+        long refreshCount = refreshes.sumThenReset();
+        long errorCount = refreshErrors.sumThenReset();
+        long totalRefreshNanos = refreshNanos.sumThenReset();
+        if (hitCount + missCount == 0) {
+            return;
+        }
+
+        metrics.addMetric("RushHourMultiplierCacheHit", hitCount, MetricUnit.COUNT);
+        metrics.addMetric("RushHourMultiplierCacheMiss", missCount, MetricUnit.COUNT);
+        if (staleCount > 0) {
+            metrics.addMetric("RushHourMultiplierStaleServed", staleCount, MetricUnit.COUNT);
+        }
+        if (errorCount > 0) {
+            metrics.addMetric("RushHourMultiplierRefreshError", errorCount, MetricUnit.COUNT);
+        }
+        if (refreshCount > 0) {
+            metrics.addMetric("RushHourMultiplierRefresh", refreshCount, MetricUnit.COUNT);
+            metrics.addMetric("RushHourMultiplierRefreshLatency",
+                totalRefreshNanos / refreshCount / 1_000_000.0, MetricUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs on the refresh thread. Lambda may freeze it between invocations; a
+     * load cut short that way finishes, or fails, after the next thaw.
+     */
+    private void refreshAhead(Snapshot current) {
+        refreshLock.lock();
+        try {
+            if (snapshot != current) {
+                // Reloaded inline by a caller that found it expired
+                return;
+            }
+            reload();
+        } catch (RuntimeException e) {
+            // Keep serving the current snapshot and leave the refresh pending; the next read past the TTL retries
+            refreshErrors.increment();
+            System.err.println("[WARN] Rush hour multiplier refresh ahead failed: " + e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Must be called with the refresh lock held.
+     */
+    private Snapshot reload() {
+        long startTime = System.nanoTime();
+        try {
+            BigDecimal multiplier = loader.get();
+            if (multiplier == null) {
+                throw new IllegalStateException("Rush hour multiplier is missing from the secret");
+            }
+
+            Snapshot loaded = new Snapshot(multiplier, System.nanoTime());
+            snapshot = loaded;
+            refreshAheadPending.set(false);
+            refreshes.increment();
+            refreshNanos.add(loaded.loadedAtNanos() - startTime);
+            return loaded;
+        } catch (RuntimeException e) {
+            failedReloads++;
+            throw e;
+        }
+    }
+
+    private static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return (value != null && !value.isEmpty()) ? value : defaultValue;
+    }
+}
@@ -0,0 +1,216 @@
+package com.powertoolsride.dynamicpricingservice.service;
+
+import com.powertoolsride.dynamicpricingservice.util.Geohash;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Per-zone surge multipliers from sliding-window counts of ride demand and
+ * available-driver supply.
+ *
+ * Zones are geohash cells held in a fixed-size open-addressing table. Each
+ * zone owns one ring-buffer slot per time bucket plus running totals, so
+ * recording an event or reading a multiplier only touches that zone's slots.
+ * An insert probes at most {@link #MAX_PROBE} slots and overwrites the least
+ * recently touched one when they are all taken, which keeps memory fixed no
+ * matter how many zones see traffic.
+ *
+ * Counts are per container: each execution environment only sees the
+ * RideCreated and DriverAvailable events it handled itself, so with several
+ * warm containers each one works from its own share of demand and supply.
+ * A zone without any supply observation in the window gets the neutral
+ * multiplier, so the engine stays inert until DriverAvailable events
+ * (SURGE_SUPPLY_EVENTS_ENABLED in ride-completion-service) are flowing.
+ */
+public class SurgeEngine {
+    public static final String DEFAULT_CURVE = "1.0:1.0,1.5:1.25,2.0:1.5,3.0:2.0,5.0:3.0";
+
+    private static final int MAX_PROBE = 8;
+
+    private final int precision;
+    private final long bucketMillis;
+    private final int windowBuckets;
+    private final int mask;
+    private final double[] curveRatios;
+    private final double[] curveMultipliers;
+
+    private final long[] zoneKeys;
+    private final long[] zoneBuckets;
+    private final int[] demandTotals;
+    private final int[] supplyTotals;
+    private final int[] demandCounts;
+    private final int[] supplyCounts;
+
+    public SurgeEngine(int precision, long bucketSeconds, int windowBuckets, int maxZones, String curve) {
+        this.precision = precision;
+        this.bucketMillis = bucketSeconds * 1000;
+        this.windowBuckets = windowBuckets;
+
+        int capacity = Integer.highestOneBit(Math.max(maxZones, MAX_PROBE) - 1) << 1;
+        this.mask = capacity - 1;
+        this.zoneKeys = new long[capacity];
+        this.zoneBuckets = new long[capacity];
+        this.demandTotals = new int[capacity];
+        this.supplyTotals = new int[capacity];
+        this.demandCounts = new int[capacity * windowBuckets];
+        this.supplyCounts = new int[capacity * windowBuckets];
+
+        String[] points = curve.split(",");
+        this.curveRatios = new double[points.length];
+        this.curveMultipliers = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            String[] point = points[i].trim().split(":");
+            curveRatios[i] = Double.parseDouble(point[0]);
+            curveMultipliers[i] = Double.parseDouble(point[1]);
+            if (i > 0 && curveRatios[i] <= curveRatios[i - 1]) {
+                throw new IllegalArgumentException("Surge curve ratios must be increasing: " + curve);
+            }
+        }
+    }
+
+    public static SurgeEngine fromEnvironment() {
+        return new SurgeEngine(
+            Integer.parseInt(getEnv("SURGE_GEOHASH_PRECISION", "6")),
+            Long.parseLong(getEnv("SURGE_BUCKET_SECONDS", "60")),
+            Integer.parseInt(getEnv("SURGE_WINDOW_BUCKETS", "10")),
+            Integer.parseInt(getEnv("SURGE_MAX_ZONES", "4096")),
+            getEnv("SURGE_CURVE", DEFAULT_CURVE)
+        );
+    }
+
+    public synchronized void recordDemand(double latitude, double longitude, long nowMillis) {
+        int slot = claimSlot(Geohash.encode(latitude, longitude, precision), nowMillis / bucketMillis);
+        int index = slot * windowBuckets + (int) (zoneBuckets[slot] % windowBuckets);
+        demandCounts[index]++;
+        demandTotals[slot]++;
+    }
+
+    public synchronized void recordSupply(double latitude, double longitude, long nowMillis) {
+        int slot = claimSlot(Geohash.encode(latitude, longitude, precision), nowMillis / bucketMillis);
+        int index = slot * windowBuckets + (int) (zoneBuckets[slot] % windowBuckets);
+        supplyCounts[index]++;
+        supplyTotals[slot]++;
+    }
+
+    public synchronized BigDecimal getMultiplier(double latitude, double longitude, long nowMillis) {
+        int slot = findSlot(Geohash.encode(latitude, longitude, precision));
+        if (slot < 0) {
+            return BigDecimal.ONE.setScale(2);
+        }
+
+        advance(slot, nowMillis / bucketMillis);
+        if (supplyTotals[slot] == 0) {
+            return BigDecimal.ONE.setScale(2);
+        }
+        double ratio = (double) demandTotals[slot] / supplyTotals[slot];
+        return BigDecimal.valueOf(applyCurve(ratio)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Piecewise-linear interpolation between curve points, clamped to the
+     * first and last multipliers outside the configured range.
+     */
+    public double applyCurve(double ratio) {
+        if (ratio <= curveRatios[0]) {
+            return curveMultipliers[0];
+        }
+        int last = curveRatios.length - 1;
+        if (ratio >= curveRatios[last]) {
+            return curveMultipliers[last];
+        }
+
+        int i = 1;
+        while (curveRatios[i] < ratio) {
+            i++;
+        }
+        double fraction = (ratio - curveRatios[i - 1]) / (curveRatios[i] - curveRatios[i - 1]);
+        return curveMultipliers[i - 1] + fraction * (curveMultipliers[i] - curveMultipliers[i - 1]);
+    }
+
+    private int findSlot(long zoneKey) {
+        int start = spread(zoneKey);
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            int slot = (start + probe) & mask;
+            if (zoneKeys[slot] == zoneKey) {
+                return slot;
+            }
+            if (zoneKeys[slot] == 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int claimSlot(long zoneKey, long nowBucket) {
+        int start = spread(zoneKey);
+        int stalest = -1;
+
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            int slot = (start + probe) & mask;
+            if (zoneKeys[slot] == zoneKey) {
+                advance(slot, nowBucket);
+                return slot;
+            }
+            if (zoneKeys[slot] == 0) {
+                stalest = slot;
+                break;
+            }
+            if (stalest < 0 || zoneBuckets[slot] < zoneBuckets[stalest]) {
+                stalest = slot;
+            }
+        }
+
+        // Slots are overwritten rather than removed, so probe chains never break
+        zoneKeys[stalest] = zoneKey;
+        zoneBuckets[stalest] = nowBucket;
+        demandTotals[stalest] = 0;
+        supplyTotals[stalest] = 0;
+        clearBuckets(stalest * windowBuckets, windowBuckets);
+        return stalest;
+    }
+
+    /**
+     * Moves a zone's window forward to the current bucket, subtracting the
+     * buckets that fall out of it from the running totals.
+     */
+    private void advance(int slot, long nowBucket) {
+        long gap = nowBucket - zoneBuckets[slot];
+        if (gap <= 0) {
+            return;
+        }
+
+        int base = slot * windowBuckets;
+        if (gap >= windowBuckets) {
+            demandTotals[slot] = 0;
+            supplyTotals[slot] = 0;
+            clearBuckets(base, windowBuckets);
+        } else {
+            for (long bucket = zoneBuckets[slot] + 1; bucket <= nowBucket; bucket++) {
+                int index = base + (int) (bucket % windowBuckets);
+                demandTotals[slot] -= demandCounts[index];
+                supplyTotals[slot] -= supplyCounts[index];
+                demandCounts[index] = 0;
+                supplyCounts[index] = 0;
+            }
+        }
+        zoneBuckets[slot] = nowBucket;
+    }
+
+    private void clearBuckets(int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            demandCounts[i] = 0;
+            supplyCounts[i] = 0;
+        }
+    }
+
+    private int spread(long zoneKey) {
+        long h = zoneKey * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return (value != null && !value.isEmpty()) ? value : defaultValue;
+    }
+}
@@ -0,0 +1,87 @@
+package com.powertoolsride.dynamicpricingservice.util;
+
+/**
+ * Geohash cells packed into a long instead of a base32 string, so zone keys
+ * can be computed and compared without allocating.
+ */
+public class Geohash {
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    /**
+     * Returns the cell containing the point, with a marker bit above the
+     * 5 * precision hash bits so that no cell encodes to zero.
+     */
+    public static long encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        long hash = 1;
+        boolean lonBit = true;
+
+        for (int bit = 0; bit < precision * 5; bit++) {
+            if (lonBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    hash = (hash << 1) | 1;
+                    minLon = mid;
+                } else {
+                    hash <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    hash = (hash << 1) | 1;
+                    minLat = mid;
+                } else {
+                    hash <<= 1;
+                    maxLat = mid;
+                }
+            }
+            lonBit = !lonBit;
+        }
+        return hash;
+    }
+
+    /**
+     * Row of the geohash cell containing the latitude. Cells at one precision
+     * form a regular grid, so rows and columns can index dense arrays.
+     */
+    public static int latitudeCell(double latitude, int precision) {
+        int bits = precision * 5 / 2;
+        int cell = (int) Math.floor((latitude + 90) / 180 * (1 << bits));
+        return Math.min(Math.max(cell, 0), (1 << bits) - 1);
+    }
+
+    public static int longitudeCell(double longitude, int precision) {
+        int bits = (precision * 5 + 1) / 2;
+        int cell = (int) Math.floor((longitude + 180) / 360 * (1 << bits));
+        return Math.min(Math.max(cell, 0), (1 << bits) - 1);
+    }
+
+    public static double latitudeCellCenter(int cell, int precision) {
+        return (cell + 0.5) * 180.0 / (1 << (precision * 5 / 2)) - 90;
+    }
+
+    public static double longitudeCellCenter(int cell, int precision) {
+        return (cell + 0.5) * 360.0 / (1 << ((precision * 5 + 1) / 2)) - 180;
+    }
+
+    public static String toBase32(long hash) {
+        int precision = (63 - Long.numberOfLeadingZeros(hash)) / 5;
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (hash & 31)];
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,121 @@
+package com.powertoolsride.benchmarks;
+
+import com.powertoolsride.paymentprocessor.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Money with the {@code BigDecimal} + {@code setScale(2, HALF_UP)}
+ * code it replaced on the operations the pricing and payment paths perform
+ * per ride: parsing a DynamoDB {@code N} attribute, applying the surge
+ * multiplier, summing and formatting.
+ *
+ * <pre>
+ * mvn -Pbenchmarks -pl money-benchmarks -am package
+ * java -jar money-benchmarks/target/benchmarks.jar -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoneyBenchmark {
+    private static final int SIZE = 1024;
+
+    private String[] amounts;
+    private BigDecimal[] multipliers;
+    private Money[] moneys;
+    private BigDecimal[] decimals;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amounts = new String[SIZE];
+        multipliers = new BigDecimal[SIZE];
+        moneys = new Money[SIZE];
+        decimals = new BigDecimal[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            long cents = 500 + random.nextInt(20_000);
+            amounts[i] = BigDecimal.valueOf(cents, 2).toPlainString();
+            multipliers[i] = BigDecimal.valueOf(100 + random.nextInt(200), 2);
+            moneys[i] = Money.ofCents(cents);
+            decimals[i] = BigDecimal.valueOf(cents, 2);
+        }
+    }
+
+    @Benchmark
+    public void parseMoney(Blackhole blackhole) {
+        for (String amount : amounts) {
+            blackhole.consume(Money.parse(amount));
+        }
+    }
+
+    @Benchmark
+    public void parseBigDecimal(Blackhole blackhole) {
+        for (String amount : amounts) {
+            blackhole.consume(new BigDecimal(amount).setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    public void surgeMoney(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(moneys[i].times(multipliers[i]));
+        }
+    }
+
+    @Benchmark
+    public void surgeBigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(decimals[i].multiply(multipliers[i]).setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    public Money sumMoney() {
+        Money total = Money.ZERO;
+        for (Money money : moneys) {
+            total = total.plus(money);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        for (BigDecimal decimal : decimals) {
+            total = total.add(decimal);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void formatMoney(Blackhole blackhole) {
+        for (Money money : moneys) {
+            blackhole.consume(money.toString());
+        }
+    }
+
+    @Benchmark
+    public void formatBigDecimal(Blackhole blackhole) {
+        for (BigDecimal decimal : decimals) {
+            blackhole.consume(decimal.toPlainString());
+        }
+    }
+}
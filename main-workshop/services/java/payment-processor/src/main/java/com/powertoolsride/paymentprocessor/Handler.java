@@ -6,6 +6,8 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.ScheduledEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.lambda.powertools.idempotency.Idempotency;
+import software.amazon.lambda.powertools.metrics.FlushMetrics;
 
 public class Handler implements RequestHandler<ScheduledEvent, Void> {
     private final PaymentProcessor paymentProcessor;
@@ -17,9 +19,11 @@ public class Handler implements RequestHandler<ScheduledEvent, Void> {
     }
 
     @Override
+    @FlushMetrics
     public Void handleRequest(ScheduledEvent event, Context context) {
         try {
             System.out.println("Payment processor handler invoked");
+            Idempotency.registerLambdaContext(context);
 
             // Extract DriverAssignedEvent from the event detail
             java.util.Map<String, Object> detail = event.getDetail();
@@ -39,6 +43,8 @@ public class Handler implements RequestHandler<ScheduledEvent, Void> {
             System.err.println("[ERROR] Failed to process payment: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Failed to process payment", e);
+        } finally {
+            paymentProcessor.flushMetrics();
         }
 
         return null;
@@ -1,13 +1,13 @@
 package com.powertoolsride.paymentprocessor;
 
 import com.powertoolsride.paymentprocessor.model.DriverAssignedEvent;
+import com.powertoolsride.paymentprocessor.model.PaymentContext;
 import com.powertoolsride.paymentprocessor.model.PaymentResult;
 import com.powertoolsride.paymentprocessor.service.PaymentService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import static software.amazon.lambda.powertools.logging.argument.StructuredArguments.entries;
@@ -17,22 +17,37 @@ public class PaymentProcessor {
     private final PaymentService paymentService;
 
     public PaymentProcessor() {
-        this.paymentService = new PaymentService();
+        this(false);
     }
 
+    public PaymentProcessor(boolean concurrentPayments) {
+        this.paymentService = new PaymentService(concurrentPayments);
+    }
+
+    /**
+     * Safe to call from many threads at once: everything specific to the
+     * payment travels in its {@link PaymentContext}.
+     */
     public PaymentResult processPayment(DriverAssignedEvent driverEvent) {
-        PaymentResult result = paymentService.processPayment(driverEvent);
+        try {
+            PaymentResult result = paymentService.processPayment(driverEvent);
 
-        if (result.success()) {
-            MDC.put("ride_id", result.payment().rideId());
-            MDC.put("rider_id", result.payment().riderId());
-            MDC.put("payment_id", result.payment().paymentId());
-            MDC.put("payment_amount", result.payment().amount().toString());
-            MDC.put("payment_method", result.payment().paymentMethod());
+            if (result.success()) {
+                Map<String, Object> fields = PaymentContext.of(result.payment().paymentId(), driverEvent).logFields();
+                fields.put("payment_amount", result.payment().amount().toString());
 
-            LOGGER.info("Payment created");
+                LOGGER.info("Payment created", entries(fields));
+            }
+
+            return result;
+        } finally {
+            // Set by the idempotency response hook when the result comes from the cache
+            MDC.remove("cached_response");
+            MDC.remove("cache_expiration");
         }
+    }
 
-        return result;
+    public void flushMetrics() {
+        paymentService.flushMetrics();
     }
 }
@@ -0,0 +1,96 @@
+package com.powertoolsride.paymentprocessor;
+
+import com.powertoolsride.paymentprocessor.model.DriverAssignedEvent;
+import com.powertoolsride.paymentprocessor.model.PaymentResult;
+import com.powertoolsride.paymentprocessor.service.PaymentLanes;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.lambda.powertools.idempotency.Idempotency;
+import software.amazon.lambda.powertools.metrics.FlushMetrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lambda handler for DriverAssigned events delivered through SQS (EventBridge
+ * rule targeting a queue). Each payment runs on its own virtual thread, so the
+ * gateway waits of a whole batch overlap instead of adding up. Failed messages
+ * are reported individually; the event source mapping needs ReportBatchItemFailures.
+ *
+ * Payments run in per-method {@link PaymentLanes}, whose combined concurrency
+ * should stay within the SDK clients' connection pools.
+ */
+public class SqsBatchHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+    private final PaymentProcessor paymentProcessor;
+    private final ObjectMapper objectMapper;
+    private final PaymentLanes paymentLanes;
+
+    public SqsBatchHandler() {
+        this.paymentProcessor = new PaymentProcessor(true);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.paymentLanes = PaymentLanes.fromEnvironment();
+    }
+
+    @Override
+    @FlushMetrics
+    public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
+        Idempotency.registerLambdaContext(context);
+
+        List<SQSBatchResponse.BatchItemFailure> failures = new ArrayList<>();
+        Map<String, Future<PaymentResult>> results = new LinkedHashMap<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SQSEvent.SQSMessage message : event.getRecords()) {
+                DriverAssignedEvent driverEvent;
+                try {
+                    // Message bodies are full EventBridge events; the assignment is in "detail"
+                    JsonNode envelope = objectMapper.readTree(message.getBody());
+                    driverEvent = objectMapper.treeToValue(envelope.get("detail"), DriverAssignedEvent.class);
+                } catch (Exception e) {
+                    System.err.println("[ERROR] Unreadable payment message " + message.getMessageId() + ": " + e.getMessage());
+                    failures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+                    continue;
+                }
+
+                results.put(message.getMessageId(), executor.submit(() ->
+                    paymentLanes.run(driverEvent.paymentMethod(), () -> paymentProcessor.processPayment(driverEvent))));
+            }
+        }
+
+        int declined = 0;
+        for (Map.Entry<String, Future<PaymentResult>> entry : results.entrySet()) {
+            try {
+                if (!entry.getValue().get().success()) {
+                    declined++;
+                }
+            } catch (ExecutionException e) {
+                System.err.println("[ERROR] Failed to process payment message " + entry.getKey() + ": " +
+                    e.getCause().getMessage());
+                failures.add(new SQSBatchResponse.BatchItemFailure(entry.getKey()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while processing payment batch", e);
+            }
+        }
+
+        paymentProcessor.flushMetrics();
+        paymentLanes.flushMetrics();
+
+        System.out.println("Processed batch of " + event.getRecords().size() + " payments, declined: " +
+            declined + ", failed: " + failures.size());
+
+        return new SQSBatchResponse(failures);
+    }
+}
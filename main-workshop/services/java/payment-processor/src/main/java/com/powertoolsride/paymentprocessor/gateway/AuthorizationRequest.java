@@ -0,0 +1,10 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.powertoolsride.paymentprocessor.model.Money;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record AuthorizationRequest(
+    @JsonProperty("paymentId") String paymentId,
+    @JsonProperty("amount") Money amount,
+    @JsonProperty("paymentMethod") String paymentMethod
+) {}
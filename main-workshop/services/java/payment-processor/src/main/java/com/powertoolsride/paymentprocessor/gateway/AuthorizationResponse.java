@@ -0,0 +1,11 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AuthorizationResponse(
+    @JsonProperty("approved") boolean approved,
+    @JsonProperty("transactionId") String transactionId,
+    @JsonProperty("errorMessage") String errorMessage
+) {}
@@ -0,0 +1,156 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.powertoolsride.paymentprocessor.model.Payment;
+import com.powertoolsride.paymentprocessor.model.PaymentGatewayResult;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects authorizations for a short window and sends them to the gateway
+ * as one batch, then completes each caller's future from its item of the
+ * batch response. Batches are kept per payment method, so fast methods never
+ * wait on a slow method's batch.
+ *
+ * A batch goes out when it reaches PAYMENT_GATEWAY_BATCH_SIZE payments
+ * (default 25) or PAYMENT_GATEWAY_BATCH_WINDOW_MS after its first payment
+ * (default 20), whichever comes first. A single waiting payment therefore
+ * pays at most the window in extra latency, which is why only the SQS batch
+ * handler, with many payments in flight at once, uses this gateway.
+ *
+ * Batch sizes are counted per method and published by {@link #flushMetrics}
+ * once per invocation.
+ */
+public class BatchingPaymentGateway implements PaymentGateway {
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+
+    private final PaymentGateway delegate;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final Map<String, PendingBatch> pendingByMethod = new HashMap<>();
+    private final ConcurrentMap<String, BatchCounters> countersByMethod = new ConcurrentHashMap<>();
+
+    private record PendingBatch(String method, List<Payment> payments, List<CompletableFuture<PaymentGatewayResult>> callers) {}
+
+    private record BatchCounters(LongAdder batches, LongAdder payments, AtomicInteger largest) {
+        BatchCounters() {
+            this(new LongAdder(), new LongAdder(), new AtomicInteger());
+        }
+    }
+
+    public BatchingPaymentGateway(PaymentGateway delegate, int maxBatchSize, long windowMillis) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = windowMillis;
+    }
+
+    public static BatchingPaymentGateway fromEnvironment(PaymentGateway delegate) {
+        String batchSize = System.getenv("PAYMENT_GATEWAY_BATCH_SIZE");
+        String window = System.getenv("PAYMENT_GATEWAY_BATCH_WINDOW_MS");
+        return new BatchingPaymentGateway(
+            delegate,
+            (batchSize != null && !batchSize.isEmpty()) ? Integer.parseInt(batchSize) : 25,
+            (window != null && !window.isEmpty()) ? Long.parseLong(window) : 20
+        );
+    }
+
+    @Override
+    public CompletableFuture<PaymentGatewayResult> authorize(Payment payment) {
+        String method = payment.paymentMethod().toLowerCase();
+        CompletableFuture<PaymentGatewayResult> caller = new CompletableFuture<>();
+        PendingBatch full = null;
+
+        synchronized (pendingByMethod) {
+            PendingBatch batch = pendingByMethod.get(method);
+            if (batch == null) {
+                batch = new PendingBatch(method, new ArrayList<>(), new ArrayList<>());
+                pendingByMethod.put(method, batch);
+
+                PendingBatch opened = batch;
+                CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS).execute(() -> sendIfPending(opened));
+            }
+
+            batch.payments().add(payment);
+            batch.callers().add(caller);
+            if (batch.payments().size() >= maxBatchSize) {
+                pendingByMethod.remove(method);
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            send(full);
+        }
+        return caller;
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentGatewayResult>> authorizeBatch(List<Payment> payments) {
+        return delegate.authorizeBatch(payments);
+    }
+
+    @Override
+    public boolean idempotent() {
+        return delegate.idempotent();
+    }
+
+    @Override
+    public void flushMetrics() {
+        countersByMethod.forEach((method, counters) -> {
+            long batches = counters.batches().sumThenReset();
+            long payments = counters.payments().sumThenReset();
+            int largest = counters.largest().getAndSet(0);
+            if (batches == 0) {
+                return;
+            }
+
+            metrics.flushMetrics(m -> {
+                m.addDimension("PaymentMethod", method);
+                m.addMetric("PaymentGatewayBatches", batches, MetricUnit.COUNT);
+                m.addMetric("PaymentGatewayBatchedPayments", payments, MetricUnit.COUNT);
+                m.addMetric("PaymentGatewayBatchSizeMax", largest, MetricUnit.COUNT);
+            });
+        });
+        delegate.flushMetrics();
+    }
+
+    private void sendIfPending(PendingBatch batch) {
+        synchronized (pendingByMethod) {
+            // Already sent if it filled up before the window closed
+            if (!pendingByMethod.remove(batch.method(), batch)) {
+                return;
+            }
+        }
+        send(batch);
+    }
+
+    private void send(PendingBatch batch) {
+        int size = batch.payments().size();
+        BatchCounters counters = countersByMethod.computeIfAbsent(batch.method(), method -> new BatchCounters());
+        counters.batches().increment();
+        counters.payments().add(size);
+        counters.largest().accumulateAndGet(size, Math::max);
+
+        delegate.authorizeBatch(batch.payments()).whenComplete((results, error) -> {
+            for (int i = 0; i < size; i++) {
+                if (error != null) {
+                    batch.callers().get(i).complete(new PaymentGatewayResult(
+                        false, null, "Payment gateway batch failed: " + error.getMessage(), 0, true));
+                } else {
+                    batch.callers().get(i).complete(results.get(i));
+                }
+            }
+        });
+    }
+}
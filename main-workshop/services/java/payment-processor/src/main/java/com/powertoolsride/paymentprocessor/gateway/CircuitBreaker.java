@@ -0,0 +1,113 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+/**
+ * Count-based circuit breaker. Opens once at least {@code failureRate} of the
+ * last {@code window} calls failed, rejects calls while open, then lets a
+ * single probe through; the probe's outcome closes or reopens it.
+ *
+ * Every state change starts a new generation, and {@link #tryAcquire} hands
+ * out the current one as the call's permit. Outcomes are only counted for the
+ * generation they were admitted in, so a slow call admitted before the
+ * breaker opened cannot close it in place of the probe.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    public static final long REJECTED = -1;
+
+    private final boolean[] outcomes;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private long generation;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int window, int minCalls, double failureRate, long openMillis) {
+        this.outcomes = new boolean[window];
+        this.minCalls = minCalls;
+        this.failureRate = failureRate;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Returns the permit to pass to {@link #record}, or {@link #REJECTED} when
+     * the call should fail fast without reaching the gateway.
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return REJECTED;
+            }
+            transitionTo(State.HALF_OPEN);
+            probeInFlight = false;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return REJECTED;
+            }
+            probeInFlight = true;
+        }
+        return generation;
+    }
+
+    public synchronized void record(long permit, boolean success) {
+        if (permit != generation) {
+            // Admitted before the last state change
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (success) {
+                transitionTo(State.CLOSED);
+                next = 0;
+                calls = 0;
+                failures = 0;
+            } else {
+                open();
+            }
+            probeInFlight = false;
+            return;
+        }
+
+        if (calls == outcomes.length) {
+            if (!outcomes[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[next] = success;
+        if (!success) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+
+        if (state == State.CLOSED && calls >= minCalls && failures >= failureRate * calls) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        transitionTo(State.OPEN);
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        generation++;
+    }
+}
@@ -0,0 +1,31 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and decline behaviour shared by the in-process simulation and the
+ * stub server: somecompany-pay takes 5 seconds, other methods 100-300 ms,
+ * and 5% of authorizations are declined.
+ */
+public final class GatewayProfile {
+    public static final String DECLINED_MESSAGE = "Payment gateway declined transaction";
+
+    private GatewayProfile() {
+    }
+
+    public static long latencyMillis(String paymentMethod) {
+        if ("somecompany-pay".equalsIgnoreCase(paymentMethod)) {
+            return 5000;
+        }
+        return 100 + ThreadLocalRandom.current().nextInt(200);
+    }
+
+    public static boolean declined() {
+        return ThreadLocalRandom.current().nextInt(100) < 5;
+    }
+
+    public static String newTransactionId() {
+        return "txn_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
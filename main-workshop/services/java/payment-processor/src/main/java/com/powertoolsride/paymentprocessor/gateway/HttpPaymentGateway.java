@@ -0,0 +1,171 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.powertoolsride.paymentprocessor.model.Payment;
+import com.powertoolsride.paymentprocessor.model.PaymentGatewayResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+
+/**
+ * Gateway client over java.net.http. One client is shared for the life of
+ * the execution environment, so keep-alive connections are pooled across
+ * payments and invocations (pool size: -Djdk.httpclient.connectionPoolSize).
+ * Each request carries the paymentId as its Idempotency-Key; in batch
+ * requests the gateway keys each item by its paymentId.
+ */
+public class HttpPaymentGateway implements PaymentGateway {
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI authorizeUri;
+    private final URI authorizeBatchUri;
+    private final Duration requestTimeout;
+
+    public HttpPaymentGateway(URI baseUri, Duration requestTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        this.objectMapper = new ObjectMapper();
+        this.authorizeUri = baseUri.resolve("/authorize");
+        this.authorizeBatchUri = baseUri.resolve("/authorize/batch");
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public CompletableFuture<PaymentGatewayResult> authorize(Payment payment) {
+        long startTime = System.currentTimeMillis();
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(
+                new AuthorizationRequest(payment.paymentId(), payment.amount(), payment.paymentMethod()));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to serialize authorization request", e));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(authorizeUri)
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", payment.paymentId())
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> toResult(response, startTime))
+            .exceptionally(e -> unavailable(e, startTime));
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentGatewayResult>> authorizeBatch(List<Payment> payments) {
+        long startTime = System.currentTimeMillis();
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payments.stream()
+                .map(payment -> new AuthorizationRequest(payment.paymentId(), payment.amount(), payment.paymentMethod()))
+                .toList());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to serialize authorization batch", e));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(authorizeBatchUri)
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> toBatchResults(response, payments.size(), startTime))
+            .exceptionally(e -> Collections.nCopies(payments.size(), unavailable(e, startTime)));
+    }
+
+    @Override
+    public boolean idempotent() {
+        return true;
+    }
+
+    private PaymentGatewayResult toResult(HttpResponse<byte[]> response, long startTime) {
+        long processingTime = System.currentTimeMillis() - startTime;
+        if (response.statusCode() / 100 != 2) {
+            return httpError(response.statusCode(), processingTime);
+        }
+
+        AuthorizationResponse authorization;
+        try {
+            authorization = objectMapper.readValue(response.body(), AuthorizationResponse.class);
+        } catch (Exception e) {
+            throw new CompletionException(new RuntimeException("Failed to parse authorization response", e));
+        }
+
+        return toResult(authorization, processingTime);
+    }
+
+    private List<PaymentGatewayResult> toBatchResults(HttpResponse<byte[]> response, int size, long startTime) {
+        long processingTime = System.currentTimeMillis() - startTime;
+        if (response.statusCode() / 100 != 2) {
+            return Collections.nCopies(size, httpError(response.statusCode(), processingTime));
+        }
+
+        AuthorizationResponse[] authorizations;
+        try {
+            authorizations = objectMapper.readValue(response.body(), AuthorizationResponse[].class);
+        } catch (Exception e) {
+            throw new CompletionException(new RuntimeException("Failed to parse authorization batch response", e));
+        }
+        if (authorizations.length != size) {
+            throw new CompletionException(new RuntimeException(
+                "Authorization batch response has " + authorizations.length + " items, expected " + size));
+        }
+
+        return Arrays.stream(authorizations).map(authorization -> toResult(authorization, processingTime)).toList();
+    }
+
+    private static PaymentGatewayResult toResult(AuthorizationResponse authorization, long processingTime) {
+        return new PaymentGatewayResult(
+            authorization.approved(),
+            authorization.transactionId(),
+            authorization.errorMessage(),
+            processingTime,
+            false
+        );
+    }
+
+    private static PaymentGatewayResult httpError(int statusCode, long processingTime) {
+        // Throttling and server errors may succeed on another attempt; other statuses will not
+        boolean retryable = statusCode == 429 || statusCode / 100 == 5;
+        return new PaymentGatewayResult(false, null, "Payment gateway returned HTTP " + statusCode,
+            processingTime, retryable);
+    }
+
+    private static PaymentGatewayResult unavailable(Throwable e, long startTime) {
+        return new PaymentGatewayResult(
+            false,
+            null,
+            "Payment gateway unavailable: " + describe(rootCause(e)),
+            System.currentTimeMillis() - startTime,
+            true
+        );
+    }
+
+    private static String describe(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
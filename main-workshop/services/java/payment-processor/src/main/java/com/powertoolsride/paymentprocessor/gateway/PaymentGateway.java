@@ -0,0 +1,74 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.powertoolsride.paymentprocessor.model.Payment;
+import com.powertoolsride.paymentprocessor.model.PaymentGatewayResult;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Authorizes payments without blocking the caller. Declines come back as
+ * unsuccessful results rather than exceptional completions.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<PaymentGatewayResult> authorize(Payment payment);
+
+    /**
+     * Authorizes several payments in one call, with results in the order of
+     * the payments. Gateways without a batch API authorize them one by one.
+     */
+    default CompletableFuture<List<PaymentGatewayResult>> authorizeBatch(List<Payment> payments) {
+        List<CompletableFuture<PaymentGatewayResult>> results = payments.stream().map(this::authorize).toList();
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Whether authorizing the same payment twice charges it at most once, so
+     * a slow call can be duplicated safely.
+     */
+    default boolean idempotent() {
+        return false;
+    }
+
+    /**
+     * Publishes the metrics collected since the last call, including those
+     * of wrapped gateways. Called once per invocation.
+     */
+    default void flushMetrics() {
+    }
+
+    /**
+     * The HTTP gateway at PAYMENT_GATEWAY_URL when it is set, otherwise the
+     * in-process simulation. PAYMENT_GATEWAY_BATCHING_ENABLED=true groups
+     * authorizations into batch calls when {@code concurrentCallers} is set;
+     * a caller with one payment at a time would only wait out the batch
+     * window. PAYMENT_GATEWAY_RESILIENCE_ENABLED=true wraps it with
+     * per-method budgets, hedging and circuit breaking.
+     */
+    static PaymentGateway fromEnvironment(boolean concurrentCallers) {
+        PaymentGateway gateway;
+        String gatewayUrl = System.getenv("PAYMENT_GATEWAY_URL");
+        if (gatewayUrl == null || gatewayUrl.isEmpty()) {
+            gateway = new SimulatedPaymentGateway();
+        } else {
+            String timeout = System.getenv("PAYMENT_GATEWAY_TIMEOUT_MS");
+            gateway = new HttpPaymentGateway(
+                URI.create(gatewayUrl),
+                Duration.ofMillis((timeout != null && !timeout.isEmpty()) ? Long.parseLong(timeout) : 10_000)
+            );
+        }
+
+        if (concurrentCallers && "true".equalsIgnoreCase(System.getenv("PAYMENT_GATEWAY_BATCHING_ENABLED"))) {
+            gateway = BatchingPaymentGateway.fromEnvironment(gateway);
+        }
+        // Outermost, so that the latency budget also covers time spent waiting for a batch
+        if ("true".equalsIgnoreCase(System.getenv("PAYMENT_GATEWAY_RESILIENCE_ENABLED"))) {
+            gateway = ResilientPaymentGateway.fromEnvironment(gateway);
+        }
+        return gateway;
+    }
+}
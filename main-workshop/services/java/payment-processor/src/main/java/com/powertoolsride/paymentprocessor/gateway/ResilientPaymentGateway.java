@@ -0,0 +1,262 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.powertoolsride.paymentprocessor.model.Payment;
+import com.powertoolsride.paymentprocessor.model.PaymentGatewayResult;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps a gateway with per-payment-method protection:
+ * - a latency budget, after which the call completes as a retryable failure
+ * - a hedged second request once the call outlives the method's recent p95,
+ *   only when the gateway is idempotent
+ * - a circuit breaker that fails fast while the method's gateway keeps
+ *   timing out or erroring
+ *
+ * Declines are answers, not failures, and never count against the breaker.
+ * Calls only bump per-method counters; {@link #flushMetrics} publishes them
+ * with the breaker state once per invocation, with a PaymentMethod dimension.
+ */
+public class ResilientPaymentGateway implements PaymentGateway {
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+    private static final String DEFAULT_METHOD = "default";
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final int NO_ANSWER = 0;
+    private static final int PRIMARY = 1;
+    private static final int HEDGE = 2;
+
+    private final PaymentGateway delegate;
+    private final Map<String, Long> budgetsMillis;
+    private final boolean hedgingEnabled;
+    private final int breakerWindow;
+    private final int breakerMinCalls;
+    private final double breakerFailureRate;
+    private final long breakerOpenMillis;
+    private final ConcurrentMap<String, MethodState> methods = new ConcurrentHashMap<>();
+
+    private record MethodState(long budgetMillis, CircuitBreaker breaker, LatencyWindow latency, Counters counters) {}
+
+    private record Counters(LongAdder calls, LongAdder rejected, LongAdder timeouts,
+                            LongAdder hedgesSent, LongAdder hedgesWon) {
+        Counters() {
+            this(new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder());
+        }
+    }
+
+    public ResilientPaymentGateway(PaymentGateway delegate, Map<String, Long> budgetsMillis, boolean hedgingEnabled,
+                                   int breakerWindow, int breakerMinCalls, double breakerFailureRate,
+                                   long breakerOpenMillis) {
+        this.delegate = delegate;
+        this.budgetsMillis = budgetsMillis;
+        this.hedgingEnabled = hedgingEnabled;
+        this.breakerWindow = breakerWindow;
+        this.breakerMinCalls = breakerMinCalls;
+        this.breakerFailureRate = breakerFailureRate;
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+
+    public static ResilientPaymentGateway fromEnvironment(PaymentGateway delegate) {
+        return new ResilientPaymentGateway(
+            delegate,
+            parseBudgets(getEnv("PAYMENT_METHOD_BUDGETS_MS", "somecompany-pay:6000,default:1000")),
+            !"false".equalsIgnoreCase(System.getenv("PAYMENT_HEDGING_ENABLED")),
+            Integer.parseInt(getEnv("PAYMENT_BREAKER_WINDOW", "20")),
+            Integer.parseInt(getEnv("PAYMENT_BREAKER_MIN_CALLS", "10")),
+            Double.parseDouble(getEnv("PAYMENT_BREAKER_FAILURE_RATE", "0.5")),
+            Long.parseLong(getEnv("PAYMENT_BREAKER_OPEN_SECONDS", "30")) * 1000
+        );
+    }
+
+    @Override
+    public CompletableFuture<PaymentGatewayResult> authorize(Payment payment) {
+        String method = payment.paymentMethod().toLowerCase();
+        MethodState state = methods.computeIfAbsent(method, this::newMethodState);
+
+        long permit = state.breaker().tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            state.counters().rejected().increment();
+            return CompletableFuture.completedFuture(new PaymentGatewayResult(
+                false, null, "Payment gateway circuit open for " + method, 0, true));
+        }
+
+        long startTime = System.currentTimeMillis();
+        AtomicBoolean hedgeSent = new AtomicBoolean();
+        AtomicInteger winner = new AtomicInteger(NO_ANSWER);
+
+        CompletableFuture<PaymentGatewayResult> attempt = delegate.authorize(payment);
+        long hedgeDelay = state.latency().p95();
+        if (hedgingEnabled && delegate.idempotent() && hedgeDelay > 0 && hedgeDelay < state.budgetMillis()) {
+            CompletableFuture<PaymentGatewayResult> primary = attempt;
+            CompletableFuture<PaymentGatewayResult> first = new CompletableFuture<>();
+            primary.whenComplete((result, error) -> {
+                if (winner.compareAndSet(NO_ANSWER, PRIMARY)) {
+                    completeFirst(first, result, error);
+                }
+            });
+
+            // Both requests carry the same idempotency key, so whichever answers first is the charge
+            CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!first.isDone()) {
+                    hedgeSent.set(true);
+                    delegate.authorize(payment).whenComplete((result, error) -> {
+                        if (winner.compareAndSet(NO_ANSWER, HEDGE)) {
+                            completeFirst(first, result, error);
+                        }
+                    });
+                }
+            });
+            attempt = first;
+        }
+
+        return attempt
+            .completeOnTimeout(new PaymentGatewayResult(false, null,
+                "Payment gateway did not answer within " + state.budgetMillis() + " ms", state.budgetMillis(), true),
+                state.budgetMillis(), TimeUnit.MILLISECONDS)
+            .handle((result, error) -> {
+                long elapsed = System.currentTimeMillis() - startTime;
+                if (error != null) {
+                    result = new PaymentGatewayResult(false, null,
+                        "Payment gateway error: " + error.getMessage(), elapsed, true);
+                }
+
+                boolean timedOut = result.retryable() && elapsed >= state.budgetMillis();
+                if (!result.retryable()) {
+                    state.latency().record(elapsed);
+                }
+                state.breaker().record(permit, !result.retryable());
+
+                Counters counters = state.counters();
+                counters.calls().increment();
+                if (timedOut) {
+                    counters.timeouts().increment();
+                }
+                if (hedgeSent.get()) {
+                    counters.hedgesSent().increment();
+                    if (winner.get() == HEDGE) {
+                        counters.hedgesWon().increment();
+                    }
+                }
+                return result;
+            });
+    }
+
+    @Override
+    public boolean idempotent() {
+        return delegate.idempotent();
+    }
+
+    /**
+     * Publishes one EMF entry per payment method that saw calls since the
+     * last flush, with its counters and the breaker's current state as one
+     * 0/1 metric per state. Latency is covered by the payment latency
+     * histograms.
+     */
+    @Override
+    public void flushMetrics() {
+        methods.forEach((method, state) -> {
+            Counters counters = state.counters();
+            CircuitBreaker.State breakerState = state.breaker().state();
+            long calls = counters.calls().sumThenReset();
+            long rejected = counters.rejected().sumThenReset();
+            long timeouts = counters.timeouts().sumThenReset();
+            long hedgesSent = counters.hedgesSent().sumThenReset();
+            long hedgesWon = counters.hedgesWon().sumThenReset();
+            if (calls == 0 && rejected == 0) {
+                return;
+            }
+
+            metrics.flushMetrics(m -> {
+                m.addDimension("PaymentMethod", method);
+                m.addMetric("PaymentCircuitClosed", breakerState == CircuitBreaker.State.CLOSED ? 1 : 0, MetricUnit.NONE);
+                m.addMetric("PaymentCircuitHalfOpen", breakerState == CircuitBreaker.State.HALF_OPEN ? 1 : 0, MetricUnit.NONE);
+                m.addMetric("PaymentCircuitOpen", breakerState == CircuitBreaker.State.OPEN ? 1 : 0, MetricUnit.NONE);
+                m.addMetric("PaymentCircuitRejected", rejected, MetricUnit.COUNT);
+                m.addMetric("PaymentGatewayCalls", calls, MetricUnit.COUNT);
+                m.addMetric("PaymentGatewayTimeout", timeouts, MetricUnit.COUNT);
+                m.addMetric("PaymentHedgeSent", hedgesSent, MetricUnit.COUNT);
+                m.addMetric("PaymentHedgeWon", hedgesWon, MetricUnit.COUNT);
+            });
+        });
+        delegate.flushMetrics();
+    }
+
+    private MethodState newMethodState(String method) {
+        long budget = budgetsMillis.getOrDefault(method, budgetsMillis.getOrDefault(DEFAULT_METHOD, 1000L));
+        return new MethodState(
+            budget,
+            new CircuitBreaker(breakerWindow, breakerMinCalls, breakerFailureRate, breakerOpenMillis),
+            new LatencyWindow(),
+            new Counters()
+        );
+    }
+
+    private static void completeFirst(CompletableFuture<PaymentGatewayResult> first,
+                                      PaymentGatewayResult result, Throwable error) {
+        if (error != null) {
+            first.completeExceptionally(error);
+        } else {
+            first.complete(result);
+        }
+    }
+
+    /**
+     * Format: "method:millis,method:millis", with "default" for methods not listed.
+     */
+    private static Map<String, Long> parseBudgets(String value) {
+        Map<String, Long> budgets = new HashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length == 2) {
+                budgets.put(parts[0].trim().toLowerCase(), Long.parseLong(parts[1].trim()));
+            }
+        }
+        return budgets;
+    }
+
+    private static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return (value != null && !value.isEmpty()) ? value : defaultValue;
+    }
+
+    /**
+     * Latencies of the method's most recent answered calls. The p95 is
+     * recomputed every 16 samples rather than on every read.
+     */
+    private static class LatencyWindow {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int next;
+        private int count;
+        private volatile long p95 = -1;
+
+        synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % LATENCY_SAMPLES;
+            if (count < LATENCY_SAMPLES) {
+                count++;
+            }
+
+            if (count >= MIN_HEDGE_SAMPLES && next % 16 == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95 = sorted[(int) Math.ceil(count * 0.95) - 1];
+            }
+        }
+
+        long p95() {
+            return p95;
+        }
+    }
+}
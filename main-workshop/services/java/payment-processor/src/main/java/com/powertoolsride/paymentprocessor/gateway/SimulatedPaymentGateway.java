@@ -0,0 +1,52 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.powertoolsride.paymentprocessor.model.Payment;
+import com.powertoolsride.paymentprocessor.model.PaymentGatewayResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process gateway with the {@link GatewayProfile} latencies. The delay is
+ * scheduled rather than slept, so no thread is held while a payment waits.
+ */
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    @Override
+    public CompletableFuture<PaymentGatewayResult> authorize(Payment payment) {
+        long startTime = System.currentTimeMillis();
+        long latency = GatewayProfile.latencyMillis(payment.paymentMethod());
+
+        return CompletableFuture.supplyAsync(() -> {
+            boolean success = !GatewayProfile.declined();
+            return new PaymentGatewayResult(
+                success,
+                success ? GatewayProfile.newTransactionId() : null,
+                success ? null : GatewayProfile.DECLINED_MESSAGE,
+                System.currentTimeMillis() - startTime,
+                false
+            );
+        }, CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * One round trip for the whole batch, as long as its slowest payment.
+     */
+    @Override
+    public CompletableFuture<List<PaymentGatewayResult>> authorizeBatch(List<Payment> payments) {
+        long startTime = System.currentTimeMillis();
+        long latency = payments.stream().mapToLong(payment -> GatewayProfile.latencyMillis(payment.paymentMethod())).max().orElse(0);
+
+        return CompletableFuture.supplyAsync(() -> payments.stream().map(payment -> {
+            boolean success = !GatewayProfile.declined();
+            return new PaymentGatewayResult(
+                success,
+                success ? GatewayProfile.newTransactionId() : null,
+                success ? null : GatewayProfile.DECLINED_MESSAGE,
+                System.currentTimeMillis() - startTime,
+                false
+            );
+        }).toList(), CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,175 @@
+package com.powertoolsride.paymentprocessor.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for the payment gateway with the {@link GatewayProfile}
+ * latencies and decline rate. Requests are served on virtual threads, so
+ * thousands of slow authorizations can be in flight at once. A repeated
+ * Idempotency-Key replays the first response. POST /authorize/batch takes an
+ * array of authorizations, for benchmarking {@link BatchingPaymentGateway}.
+ *
+ * Embed it with {@code new StubGatewayServer(0).start()}, or run it on its own:
+ *
+ *   java -cp target/payment-processor-1.0.0.jar \
+ *     com.powertoolsride.paymentprocessor.gateway.StubGatewayServer 8089
+ */
+public class StubGatewayServer {
+    private static final int MAX_REMEMBERED_KEYS = 100_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final Map<String, AuthorizationResponse> responsesByIdempotencyKey = new ConcurrentHashMap<>();
+
+    public StubGatewayServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.objectMapper = new ObjectMapper();
+        server.setExecutor(executor);
+        server.createContext("/authorize", this::handleAuthorize);
+        server.createContext("/authorize/batch", this::handleAuthorizeBatch);
+    }
+
+    public StubGatewayServer start() {
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public URI getBaseUri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private void handleAuthorize(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            AuthorizationRequest request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = objectMapper.readValue(body, AuthorizationRequest.class);
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            AuthorizationResponse response = replay(idempotencyKey);
+            if (response == null) {
+                pause(GatewayProfile.latencyMillis(request.paymentMethod()));
+                response = remember(idempotencyKey, authorize());
+            }
+
+            send(exchange, objectMapper.writeValueAsBytes(response));
+        }
+    }
+
+    /**
+     * Many authorizations in one round trip, answered in request order. Each
+     * item's paymentId is its idempotency key, and the batch takes as long as
+     * its slowest new item.
+     */
+    private void handleAuthorizeBatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            AuthorizationRequest[] requests;
+            try (InputStream body = exchange.getRequestBody()) {
+                requests = objectMapper.readValue(body, AuthorizationRequest[].class);
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            AuthorizationResponse[] responses = new AuthorizationResponse[requests.length];
+            long latency = 0;
+            for (int i = 0; i < requests.length; i++) {
+                responses[i] = replay(requests[i].paymentId());
+                if (responses[i] == null) {
+                    latency = Math.max(latency, GatewayProfile.latencyMillis(requests[i].paymentMethod()));
+                }
+            }
+
+            pause(latency);
+            for (int i = 0; i < requests.length; i++) {
+                if (responses[i] == null) {
+                    responses[i] = remember(requests[i].paymentId(), authorize());
+                }
+            }
+
+            send(exchange, objectMapper.writeValueAsBytes(responses));
+        }
+    }
+
+    private AuthorizationResponse replay(String idempotencyKey) {
+        return idempotencyKey != null ? responsesByIdempotencyKey.get(idempotencyKey) : null;
+    }
+
+    /**
+     * Stores the response under the key and returns whichever response was
+     * stored first, so concurrent retries see the same outcome.
+     */
+    private AuthorizationResponse remember(String idempotencyKey, AuthorizationResponse response) {
+        if (idempotencyKey == null) {
+            return response;
+        }
+        if (responsesByIdempotencyKey.size() >= MAX_REMEMBERED_KEYS) {
+            responsesByIdempotencyKey.clear();
+        }
+        AuthorizationResponse first = responsesByIdempotencyKey.putIfAbsent(idempotencyKey, response);
+        return first != null ? first : response;
+    }
+
+    private static AuthorizationResponse authorize() {
+        boolean approved = !GatewayProfile.declined();
+        return new AuthorizationResponse(
+            approved,
+            approved ? GatewayProfile.newTransactionId() : null,
+            approved ? null : GatewayProfile.DECLINED_MESSAGE
+        );
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, byte[] response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        StubGatewayServer server = new StubGatewayServer(port).start();
+        System.out.println("Stub payment gateway listening on " + server.getBaseUri());
+    }
+}
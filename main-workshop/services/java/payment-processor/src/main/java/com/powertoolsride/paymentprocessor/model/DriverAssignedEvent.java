@@ -10,8 +10,8 @@ public record DriverAssignedEvent(
     @JsonProperty("riderName") String riderName,
     @JsonProperty("driverId") String driverId,
     @JsonProperty("driverName") String driverName,
-    @JsonProperty("estimatedPrice") BigDecimal estimatedPrice,
-    @JsonProperty("basePrice") BigDecimal basePrice,
+    @JsonProperty("estimatedPrice") Money estimatedPrice,
+    @JsonProperty("basePrice") Money basePrice,
     @JsonProperty("surgeMultiplier") BigDecimal surgeMultiplier,
     @JsonProperty("pickupLocation") Location pickupLocation,
     @JsonProperty("dropoffLocation") Location dropoffLocation,
@@ -1,14 +1,13 @@
 package com.powertoolsride.paymentprocessor.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.math.BigDecimal;
 
 public record Payment(
     @JsonProperty("paymentId") String paymentId,
     @JsonProperty("rideId") String rideId,
     @JsonProperty("riderId") String riderId,
     @JsonProperty("driverId") String driverId,
-    @JsonProperty("amount") BigDecimal amount,
+    @JsonProperty("amount") Money amount,
     @JsonProperty("paymentMethod") String paymentMethod,
     @JsonProperty("status") String status,
     @JsonProperty("failureReason") String failureReason,
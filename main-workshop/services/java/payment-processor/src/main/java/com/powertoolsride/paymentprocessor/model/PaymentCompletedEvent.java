@@ -1,7 +1,6 @@
 package com.powertoolsride.paymentprocessor.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.math.BigDecimal;
 
 public record PaymentCompletedEvent(
     @JsonProperty("eventType") String eventType,
@@ -9,9 +8,10 @@ public record PaymentCompletedEvent(
     @JsonProperty("rideId") String rideId,
     @JsonProperty("riderId") String riderId,
     @JsonProperty("driverId") String driverId,
-    @JsonProperty("amount") BigDecimal amount,
+    @JsonProperty("amount") Money amount,
     @JsonProperty("paymentMethod") String paymentMethod,
     @JsonProperty("transactionId") String transactionId,
     @JsonProperty("timestamp") String timestamp,
-    @JsonProperty("correlationId") String correlationId
+    @JsonProperty("correlationId") String correlationId,
+    @JsonProperty("dedupKey") String dedupKey
 ) {}
@@ -0,0 +1,43 @@
+package com.powertoolsride.paymentprocessor.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values that belong to one payment rather than to the service. They are
+ * passed along explicitly, never stored in fields or thread-wide state, so
+ * that one service instance can process many payments at once.
+ */
+public record PaymentContext(
+    String paymentId,
+    String rideId,
+    String riderId,
+    String paymentMethod,
+    String correlationId
+) {
+
+    public static PaymentContext of(String paymentId, DriverAssignedEvent driverEvent) {
+        return new PaymentContext(
+            paymentId,
+            driverEvent.rideId(),
+            driverEvent.riderId(),
+            driverEvent.paymentMethod(),
+            driverEvent.correlationId()
+        );
+    }
+
+    /**
+     * Structured log fields for this payment, for use with StructuredArguments.entries.
+     */
+    public Map<String, Object> logFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("payment_id", paymentId);
+        fields.put("ride_id", rideId);
+        fields.put("rider_id", riderId);
+        fields.put("payment_method", paymentMethod);
+        if (correlationId != null) {
+            fields.put("correlation_id", correlationId);
+        }
+        return fields;
+    }
+}
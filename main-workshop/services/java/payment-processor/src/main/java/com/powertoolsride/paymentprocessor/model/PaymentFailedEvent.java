@@ -1,7 +1,6 @@
 package com.powertoolsride.paymentprocessor.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.math.BigDecimal;
 
 public record PaymentFailedEvent(
     @JsonProperty("eventType") String eventType,
@@ -9,7 +8,7 @@ public record PaymentFailedEvent(
     @JsonProperty("rideId") String rideId,
     @JsonProperty("riderId") String riderId,
     @JsonProperty("driverId") String driverId,
-    @JsonProperty("amount") BigDecimal amount,
+    @JsonProperty("amount") Money amount,
     @JsonProperty("paymentMethod") String paymentMethod,
     @JsonProperty("failureReason") String failureReason,
     @JsonProperty("timestamp") String timestamp,
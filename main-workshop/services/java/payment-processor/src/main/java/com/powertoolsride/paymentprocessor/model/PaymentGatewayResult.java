@@ -6,5 +6,6 @@ public record PaymentGatewayResult(
     @JsonProperty("success") boolean success,
     @JsonProperty("transactionId") String transactionId,
     @JsonProperty("errorMessage") String errorMessage,
-    @JsonProperty("processingTimeMs") long processingTimeMs
+    @JsonProperty("processingTimeMs") long processingTimeMs,
+    @JsonProperty("retryable") boolean retryable
 ) {}
@@ -1,5 +1,6 @@
 package com.powertoolsride.paymentprocessor.repository;
 
+import com.powertoolsride.paymentprocessor.model.Money;
 import com.powertoolsride.paymentprocessor.model.Payment;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
@@ -22,7 +23,55 @@ public class PaymentRepository {
         this.paymentsTableName = (tableName != null && !tableName.isEmpty()) ? tableName : "Payments";
     }
 
-    public void createPayment(Payment payment, String correlationId) {
+    /**
+     * Writes the "processing" record of a payment. A record an earlier attempt
+     * left in processing or pending_retry is replaced, but one that already
+     * reached a final state is not: it is returned so the caller can answer
+     * from it instead of charging again. Returns null when the record was written.
+     */
+    public Payment createPayment(Payment payment, String correlationId) {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":processing", AttributeValue.builder().s("processing").build());
+        expressionAttributeValues.put(":pendingRetry", AttributeValue.builder().s("pending_retry").build());
+
+        PutItemRequest request = PutItemRequest.builder()
+            .tableName(paymentsTableName)
+            .item(toItem(payment, correlationId))
+            .conditionExpression("attribute_not_exists(paymentId) OR #status IN (:processing, :pendingRetry)")
+            .expressionAttributeNames(Map.of("#status", "status"))
+            .expressionAttributeValues(expressionAttributeValues)
+            .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+            .build();
+
+        try {
+            dynamoDb.putItem(request);
+            return null;
+        } catch (ConditionalCheckFailedException e) {
+            return fromItem(e.item());
+        }
+    }
+
+    /**
+     * Writes a payment in its final state in one request. The condition keeps
+     * it from replacing a record another attempt has already written; returns
+     * false in that case.
+     */
+    public boolean putFinalPayment(Payment payment, String correlationId) {
+        PutItemRequest request = PutItemRequest.builder()
+            .tableName(paymentsTableName)
+            .item(toItem(payment, correlationId))
+            .conditionExpression("attribute_not_exists(paymentId)")
+            .build();
+
+        try {
+            dynamoDb.putItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    private Map<String, AttributeValue> toItem(Payment payment, String correlationId) {
         Map<String, AttributeValue> item = new HashMap<>();
         item.put("paymentId", AttributeValue.builder().s(payment.paymentId()).build());
         item.put("rideId", AttributeValue.builder().s(payment.rideId()).build());
@@ -46,12 +95,28 @@ public class PaymentRepository {
             item.put("correlationId", AttributeValue.builder().s(correlationId).build());
         }
 
-        PutItemRequest request = PutItemRequest.builder()
-            .tableName(paymentsTableName)
-            .item(item)
-            .build();
+        return item;
+    }
+
+    private static Payment fromItem(Map<String, AttributeValue> item) {
+        return new Payment(
+            stringOf(item, "paymentId"),
+            stringOf(item, "rideId"),
+            stringOf(item, "riderId"),
+            stringOf(item, "driverId"),
+            Money.parse(item.get("amount").n()),
+            stringOf(item, "paymentMethod"),
+            stringOf(item, "status"),
+            stringOf(item, "failureReason"),
+            stringOf(item, "transactionId"),
+            stringOf(item, "createdAt"),
+            stringOf(item, "updatedAt")
+        );
+    }
 
-        dynamoDb.putItem(request);
+    private static String stringOf(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null ? value.s() : null;
     }
 
     public void updatePaymentStatus(String paymentId, String status, String transactionId) {
@@ -0,0 +1,142 @@
+package com.powertoolsride.paymentprocessor.service;
+
+import com.powertoolsride.paymentprocessor.util.LatencyHistogram;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bulkheads for concurrent payment processing. Each payment method gets its
+ * own lane with a fixed number of payments in flight and a bounded number
+ * waiting behind them, so a backlog of slow payments cannot take the
+ * concurrency that fast methods need. Methods without a lane of their own
+ * share the "default" lane.
+ *
+ * When a lane's queue is full, its overflow policy applies: "reject" fails the
+ * payment as retryable so the message comes back later, and "wait" blocks
+ * until a queue slot frees up.
+ *
+ * PAYMENT_LANES format: "method:concurrency:queue:policy,...", for example
+ * "somecompany-pay:8:32:reject,default:32:256:wait".
+ *
+ * Payments only record into per-lane counters and a wait-time histogram;
+ * {@link #flushMetrics} publishes them once per invocation.
+ */
+public class PaymentLanes {
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+    private static final String DEFAULT_LANE = "default";
+
+    public enum OverflowPolicy {
+        REJECT, WAIT
+    }
+
+    private final Map<String, Lane> lanes;
+
+    private record Lane(String name, int concurrency, OverflowPolicy overflow, Semaphore running, Semaphore admitted,
+                        LatencyHistogram waitTime, LongAdder rejected, AtomicInteger peakOccupancy,
+                        AtomicInteger peakQueueDepth) {
+        Lane(String name, int concurrency, int queueDepth, OverflowPolicy overflow) {
+            this(name, concurrency, overflow, new Semaphore(concurrency), new Semaphore(concurrency + queueDepth),
+                new LatencyHistogram(), new LongAdder(), new AtomicInteger(), new AtomicInteger());
+        }
+    }
+
+    private PaymentLanes(Map<String, Lane> lanes) {
+        this.lanes = lanes;
+    }
+
+    public static PaymentLanes fromEnvironment() {
+        String spec = System.getenv("PAYMENT_LANES");
+        return parse((spec != null && !spec.isEmpty()) ? spec : "somecompany-pay:8:32:reject,default:32:256:wait");
+    }
+
+    public static PaymentLanes parse(String spec) {
+        Map<String, Lane> lanes = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid payment lane '" + entry + "', expected method:concurrency:queue:policy");
+            }
+
+            String name = parts[0].trim().toLowerCase();
+            int concurrency = Integer.parseInt(parts[1].trim());
+            int queueDepth = Integer.parseInt(parts[2].trim());
+            lanes.put(name, new Lane(name, concurrency, queueDepth, OverflowPolicy.valueOf(parts[3].trim().toUpperCase())));
+        }
+
+        // Methods without a lane must still be bounded
+        lanes.putIfAbsent(DEFAULT_LANE, new Lane(DEFAULT_LANE, 32, 256, OverflowPolicy.WAIT));
+        return new PaymentLanes(lanes);
+    }
+
+    /**
+     * Runs the payment in its method's lane, waiting for a slot if the lane
+     * is busy. Throws RetryablePaymentException when the lane rejects it.
+     */
+    public <T> T run(String paymentMethod, Supplier<T> payment) throws InterruptedException {
+        Lane lane = lanes.get(paymentMethod != null ? paymentMethod.toLowerCase() : DEFAULT_LANE);
+        if (lane == null) {
+            lane = lanes.get(DEFAULT_LANE);
+        }
+
+        if (!lane.admitted().tryAcquire()) {
+            if (lane.overflow() == OverflowPolicy.REJECT) {
+                lane.rejected().increment();
+                throw new RetryablePaymentException("Payment lane " + lane.name() + " is full");
+            }
+            lane.admitted().acquire();
+        }
+
+        try {
+            long queuedAt = System.currentTimeMillis();
+            if (lane.running().availablePermits() == 0) {
+                lane.peakQueueDepth().accumulateAndGet(lane.running().getQueueLength() + 1, Math::max);
+            }
+            lane.running().acquire();
+            try {
+                lane.waitTime().record(System.currentTimeMillis() - queuedAt);
+                lane.peakOccupancy().accumulateAndGet(lane.concurrency() - lane.running().availablePermits(), Math::max);
+
+                return payment.get();
+            } finally {
+                lane.running().release();
+            }
+        } finally {
+            lane.admitted().release();
+        }
+    }
+
+    /**
+     * Publishes one EMF entry per lane that saw payments since the last call:
+     * wait-time percentiles, rejections and peak occupancy and queue depth.
+     */
+    public void flushMetrics() {
+        lanes.values().forEach(lane -> {
+            LatencyHistogram.Snapshot waited = lane.waitTime().snapshotAndReset();
+            long rejected = lane.rejected().sumThenReset();
+            int peakOccupancy = lane.peakOccupancy().getAndSet(0);
+            int peakQueueDepth = lane.peakQueueDepth().getAndSet(0);
+            if (waited.count() == 0 && rejected == 0) {
+                return;
+            }
+
+            metrics.flushMetrics(m -> {
+                m.addDimension("PaymentLane", lane.name());
+                m.addMetric("PaymentLaneRuns", waited.count(), MetricUnit.COUNT);
+                m.addMetric("PaymentLaneRejected", rejected, MetricUnit.COUNT);
+                m.addMetric("PaymentLanePeakOccupancy", peakOccupancy, MetricUnit.COUNT);
+                m.addMetric("PaymentLanePeakQueueDepth", peakQueueDepth, MetricUnit.COUNT);
+                m.addMetric("PaymentLaneWaitP50", waited.p50(), MetricUnit.MILLISECONDS);
+                m.addMetric("PaymentLaneWaitP99", waited.p99(), MetricUnit.MILLISECONDS);
+                m.addMetric("PaymentLaneWaitMax", waited.max(), MetricUnit.MILLISECONDS);
+            });
+        });
+    }
+}
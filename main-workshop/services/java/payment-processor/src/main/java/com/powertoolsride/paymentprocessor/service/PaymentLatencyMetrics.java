@@ -0,0 +1,58 @@
+package com.powertoolsride.paymentprocessor.service;
+
+import com.powertoolsride.paymentprocessor.util.LatencyHistogram;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gateway processing time per payment method and outcome. Payments only
+ * record into histograms; {@link #flush} publishes one EMF entry per method
+ * and outcome with the percentiles of the invocation, however many payments
+ * it processed.
+ */
+public class PaymentLatencyMetrics {
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+
+    private final Map<String, MethodHistograms> histograms = new ConcurrentHashMap<>();
+
+    private record MethodHistograms(LatencyHistogram success, LatencyHistogram decline) {
+        MethodHistograms() {
+            this(new LatencyHistogram(), new LatencyHistogram());
+        }
+    }
+
+    public void record(String paymentMethod, boolean success, long processingTimeMs) {
+        MethodHistograms method = histograms.get(paymentMethod);
+        if (method == null) {
+            method = histograms.computeIfAbsent(paymentMethod, key -> new MethodHistograms());
+        }
+        (success ? method.success() : method.decline()).record(processingTimeMs);
+    }
+
+    public void flush() {
+        histograms.forEach((paymentMethod, method) -> {
+            publish(paymentMethod, "success", method.success().snapshotAndReset());
+            publish(paymentMethod, "decline", method.decline().snapshotAndReset());
+        });
+    }
+
+    private static void publish(String paymentMethod, String outcome, LatencyHistogram.Snapshot snapshot) {
+        if (snapshot.count() == 0) {
+            return;
+        }
+
+        metrics.flushMetrics(m -> {
+            m.addDimension("PaymentMethod", paymentMethod);
+            m.addDimension("Outcome", outcome);
+            m.addMetric("PaymentCount", snapshot.count(), MetricUnit.COUNT);
+            m.addMetric("PaymentLatencyP50", snapshot.p50(), MetricUnit.MILLISECONDS);
+            m.addMetric("PaymentLatencyP90", snapshot.p90(), MetricUnit.MILLISECONDS);
+            m.addMetric("PaymentLatencyP99", snapshot.p99(), MetricUnit.MILLISECONDS);
+            m.addMetric("PaymentLatencyMax", snapshot.max(), MetricUnit.MILLISECONDS);
+        });
+    }
+}
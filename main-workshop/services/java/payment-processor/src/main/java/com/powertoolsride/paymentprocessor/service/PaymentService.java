@@ -1,27 +1,62 @@
 package com.powertoolsride.paymentprocessor.service;
 
+import com.powertoolsride.paymentprocessor.gateway.PaymentGateway;
 import com.powertoolsride.paymentprocessor.model.*;
 import com.powertoolsride.paymentprocessor.repository.PaymentRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.lambda.powertools.idempotency.Idempotency;
+import software.amazon.lambda.powertools.idempotency.IdempotencyConfig;
+import software.amazon.lambda.powertools.idempotency.IdempotencyKey;
+import software.amazon.lambda.powertools.idempotency.Idempotent;
+import software.amazon.lambda.powertools.idempotency.persistence.DataRecord;
+import software.amazon.lambda.powertools.idempotency.persistence.dynamodb.DynamoDBPersistenceStore;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static software.amazon.lambda.powertools.logging.argument.StructuredArguments.entries;
 
 public class PaymentService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaymentService.class);
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+    // Counted here because the hook runs on the payment threads; published by flushMetrics
+    private static final LongAdder idempotentHits = new LongAdder();
+
     private final PaymentRepository paymentRepository;
+    private final PaymentGateway paymentGateway;
     private final EventBridgeClient eventBridge;
     private final ObjectMapper objectMapper;
     private final String eventBusName;
-    private final Random random;
-    private String correlationId;
+    private final boolean singleWrite;
+    private final Set<String> intentMethods;
+    private final PaymentLatencyMetrics latencyMetrics;
+    private final PaymentCompletedPublishing completedPublishing;
 
-    public PaymentService() {
+    /**
+     * @param concurrentPayments whether payments are processed many at a time,
+     *                           which lets the gateway batch them
+     */
+    public PaymentService(boolean concurrentPayments) {
         this.paymentRepository = new PaymentRepository();
+        this.paymentGateway = PaymentGateway.fromEnvironment(concurrentPayments);
         this.eventBridge = EventBridgeClient.builder()
             .overrideConfiguration(software.amazon.awssdk.core.client.config.ClientOverrideConfiguration.builder()
                 .addExecutionInterceptor(new com.amazonaws.xray.interceptors.TracingInterceptor())
@@ -29,13 +64,71 @@ public class PaymentService {
             .build();
         this.objectMapper = new ObjectMapper();
         this.eventBusName = System.getenv("EVENT_BUS_NAME");
-        this.random = new Random();
+        this.singleWrite = "single".equalsIgnoreCase(System.getenv("PAYMENT_WRITE_MODE"));
+        String intentMethods = System.getenv("PAYMENT_INTENT_METHODS");
+        this.intentMethods = Arrays.stream(((intentMethods != null) ? intentMethods : "somecompany-pay").split(","))
+            .map(method -> method.trim().toLowerCase())
+            .filter(method -> !method.isEmpty())
+            .collect(Collectors.toSet());
+        this.latencyMetrics = new PaymentLatencyMetrics();
+        this.completedPublishing = PaymentCompletedPublishing.fromEnvironment();
+        configureIdempotency();
+    }
+
+    /**
+     * Results are stored per ride (IDEMPOTENCY_KEY_JMESPATH, default "rideId")
+     * and kept in a local cache as well, so a redelivered event gets the first
+     * result back without a gateway call or, when the same container handles
+     * it, a DynamoDB read. Attempts that throw leave no record and run again.
+     */
+    private static void configureIdempotency() {
+        String keyPath = System.getenv("IDEMPOTENCY_KEY_JMESPATH");
+        String cacheSize = System.getenv("IDEMPOTENCY_LOCAL_CACHE_SIZE");
+        String expiration = System.getenv("IDEMPOTENCY_EXPIRATION_SECONDS");
+
+        Idempotency.config()
+            .withPersistenceStore(DynamoDBPersistenceStore.builder()
+                .withTableName(System.getenv("IDEMPOTENCY_TABLE_NAME"))
+                .withDynamoDbClient(DynamoDbClient.builder()
+                    .overrideConfiguration(software.amazon.awssdk.core.client.config.ClientOverrideConfiguration.builder()
+                        .addExecutionInterceptor(new com.amazonaws.xray.interceptors.TracingInterceptor())
+                        .build())
+                    .build())
+                .build())
+            .withConfig(IdempotencyConfig.builder()
+                .withEventKeyJMESPath((keyPath != null && !keyPath.isEmpty()) ? keyPath : "rideId")
+                .withThrowOnNoIdempotencyKey(true)
+                .withUseLocalCache(true)
+                .withLocalCacheMaxItems((cacheSize != null && !cacheSize.isEmpty()) ? Integer.parseInt(cacheSize) : 1000)
+                .withExpiration(Duration.ofSeconds((expiration != null && !expiration.isEmpty()) ? Long.parseLong(expiration) : 3600))
+                .withResponseHook(PaymentService::onCachedResult)
+                .build())
+            .configure();
     }
 
-    public PaymentResult processPayment(DriverAssignedEvent driverEvent) {
-        correlationId = driverEvent.correlationId();
+    private static Object onCachedResult(Object response, DataRecord record) {
+        idempotentHits.increment();
+
+        if (response instanceof PaymentResult result) {
+            // Left on the thread for the caller's "Payment created" line; PaymentProcessor clears it
+            MDC.put("cached_response", "true");
+            MDC.put("cache_expiration", Instant.ofEpochSecond(record.getExpiryTimestamp()).toString());
+            LOGGER.info("Log from hook: returning cached payment result", entries(Map.of(
+                "ride_id", result.payment().rideId(),
+                "rider_id", result.payment().riderId(),
+                "payment_id", result.payment().paymentId()
+            )));
+        }
+        return response;
+    }
 
-        String paymentId = UUID.randomUUID().toString();
+    @Idempotent
+    public PaymentResult processPayment(@IdempotencyKey DriverAssignedEvent driverEvent) {
+        // Derived from the ride so that an attempt retried after a timeout reuses the
+        // gateway's Idempotency-Key instead of authorizing a second payment
+        String paymentId = UUID.nameUUIDFromBytes(
+            ("payment:" + driverEvent.rideId()).getBytes(StandardCharsets.UTF_8)).toString();
+        PaymentContext context = PaymentContext.of(paymentId, driverEvent);
 
         Payment payment = new Payment(
             paymentId,
@@ -51,30 +144,56 @@ public class PaymentService {
             Instant.now().toString()
         );
 
-        paymentRepository.createPayment(payment, correlationId);
+        // In single-write mode only slow methods get a "processing" record up front;
+        // everything else is written once, in its final state
+        boolean writeIntent = !singleWrite || intentMethods.contains(payment.paymentMethod().toLowerCase());
+        if (writeIntent) {
+            Payment recorded = paymentRepository.createPayment(payment, context.correlationId());
+            if (recorded != null) {
+                return resumeRecordedPayment(recorded, driverEvent, context);
+            }
+        }
 
-        PaymentGatewayResult gatewayResult = simulatePaymentGateway(payment);
+        PaymentGatewayResult gatewayResult = paymentGateway.authorize(payment).join();
 
-        // Update payment status based on gateway result
-        if (gatewayResult.success()) {
-            paymentRepository.updatePaymentStatus(paymentId, "completed", gatewayResult.transactionId());
-
-            // Only send PaymentCompleted event if payment succeeded
-            PaymentCompletedEvent completedEvent = new PaymentCompletedEvent(
-                "PaymentCompleted",
-                paymentId,
-                driverEvent.rideId(),
-                driverEvent.riderId(),
-                driverEvent.driverId(),
+        // No answer (timeout, open circuit, gateway error) is not a decline: fail the
+        // invocation so the event is delivered again instead of failing the payment
+        if (gatewayResult.retryable()) {
+            if (writeIntent) {
+                paymentRepository.updatePaymentStatus(paymentId, "pending_retry", null, gatewayResult.errorMessage());
+            }
+            throw new RetryablePaymentException("Payment " + paymentId + " for ride " + driverEvent.rideId() +
+                " not authorized: " + gatewayResult.errorMessage());
+        }
+        latencyMetrics.record(payment.paymentMethod().toLowerCase(), gatewayResult.success(), gatewayResult.processingTimeMs());
+
+        if (!writeIntent) {
+            boolean written = paymentRepository.putFinalPayment(new Payment(
+                payment.paymentId(),
+                payment.rideId(),
+                payment.riderId(),
+                payment.driverId(),
                 payment.amount(),
                 payment.paymentMethod(),
+                gatewayResult.success() ? "completed" : "failed",
+                gatewayResult.errorMessage(),
                 gatewayResult.transactionId(),
-                Instant.now().toString(),
-                correlationId
-            );
+                payment.createdAt(),
+                Instant.now().toString()
+            ), context.correlationId());
+            if (!written) {
+                System.out.println("Payment " + paymentId + " was already recorded by an earlier attempt");
+            }
+        }
 
-            publishEvent(completedEvent, "PaymentCompleted");
-        } else {
+        // Update payment status based on gateway result
+        if (gatewayResult.success()) {
+            if (writeIntent) {
+                paymentRepository.updatePaymentStatus(paymentId, "completed", gatewayResult.transactionId());
+            }
+
+            publishCompleted(payment, gatewayResult.transactionId(), driverEvent, context);
+        } else if (writeIntent) {
             // Update status to failed if payment gateway failed
             paymentRepository.updatePaymentStatus(paymentId, "failed", null, gatewayResult.errorMessage());
         }
@@ -88,34 +207,62 @@ public class PaymentService {
         );
     }
 
-    public PaymentGatewayResult simulatePaymentGateway(Payment payment) {
-        long startTime = System.currentTimeMillis();
-
-        String paymentMethod = payment.paymentMethod().toLowerCase();
+    /**
+     * Answers from a payment an earlier attempt already completed or failed,
+     * without calling the gateway again. That attempt may have stopped before
+     * publishing, so a completed payment is announced again; consumers drop
+     * the duplicate by its dedup key.
+     */
+    private PaymentResult resumeRecordedPayment(Payment recorded, DriverAssignedEvent driverEvent, PaymentContext context) {
+        System.out.println("Payment " + recorded.paymentId() + " was already " + recorded.status() +
+            " by an earlier attempt");
 
-        try {
-            if (paymentMethod.equals("somecompany-pay")) {
-                Thread.sleep(5000);
-            } else {
-                Thread.sleep(100 + random.nextInt(200));
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        boolean completed = "completed".equals(recorded.status());
+        if (completed) {
+            publishCompleted(recorded, recorded.transactionId(), driverEvent, context);
         }
+        return new PaymentResult(completed, recorded, recorded.transactionId(), recorded.failureReason(), 0);
+    }
 
-        long processingTime = System.currentTimeMillis() - startTime;
-        
-        // Simulate 5% failure rate
-        boolean success = random.nextInt(100) >= 5;
-        String transactionId = success ? "txn_" + UUID.randomUUID().toString().substring(0, 8) : null;
-        String errorMessage = success ? null : "Payment gateway declined transaction";
+    /**
+     * Sends PaymentCompleted, only when this service is a publisher; otherwise
+     * the stream processor emits it.
+     */
+    private void publishCompleted(Payment payment, String transactionId, DriverAssignedEvent driverEvent,
+                                  PaymentContext context) {
+        if (!completedPublishing.publishesDirect()) {
+            return;
+        }
 
-        return new PaymentGatewayResult(
-            success,
+        PaymentCompletedEvent completedEvent = new PaymentCompletedEvent(
+            "PaymentCompleted",
+            payment.paymentId(),
+            driverEvent.rideId(),
+            driverEvent.riderId(),
+            driverEvent.driverId(),
+            payment.amount(),
+            payment.paymentMethod(),
             transactionId,
-            errorMessage,
-            processingTime
+            Instant.now().toString(),
+            context.correlationId(),
+            PaymentCompletedPublishing.dedupKey(payment.paymentId())
         );
+
+        publishEvent(completedEvent, "PaymentCompleted");
+    }
+
+    /**
+     * Publishes the gateway latency percentiles, gateway counters and cached
+     * result hits of the payments processed since the last call. Called once
+     * per invocation.
+     */
+    public void flushMetrics() {
+        long hits = idempotentHits.sumThenReset();
+        if (hits > 0) {
+            metrics.addMetric("PaymentIdempotentHits", hits, MetricUnit.COUNT);
+        }
+        latencyMetrics.flush();
+        paymentGateway.flushMetrics();
     }
 
     public void publishEvent(Object event, String detailType) {
@@ -0,0 +1,12 @@
+package com.powertoolsride.paymentprocessor.service;
+
+/**
+ * The gateway gave no answer for the payment, so it may still succeed when
+ * the event is delivered again.
+ */
+public class RetryablePaymentException extends RuntimeException {
+
+    public RetryablePaymentException(String message) {
+        super(message);
+    }
+}
@@ -3,13 +3,18 @@ package com.powertoolsride.paymentstreamprocessor;
 import static software.amazon.lambda.powertools.logging.argument.StructuredArguments.entry;
 
 import com.powertoolsride.paymentstreamprocessor.model.PaymentStreamEvent;
+import com.powertoolsride.paymentstreamprocessor.service.OrderedParallelProcessor;
+import com.powertoolsride.paymentstreamprocessor.service.StreamCheckpoints;
 import com.powertoolsride.paymentstreamprocessor.service.StreamProcessorService;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import software.amazon.lambda.powertools.batch.BatchMessageHandlerBuilder;
+import software.amazon.lambda.powertools.batch.handler.BatchMessageHandler;
 import software.amazon.lambda.powertools.logging.Logging;
 import software.amazon.lambda.powertools.metrics.FlushMetrics;
 import software.amazon.lambda.powertools.metrics.Metrics;
@@ -17,61 +22,146 @@ import software.amazon.lambda.powertools.metrics.MetricsFactory;
 import software.amazon.lambda.powertools.metrics.model.MetricUnit;
 import software.amazon.lambda.powertools.tracing.Tracing;
 
-public class Handler implements RequestHandler<DynamodbEvent, Void> {
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes Payments table stream records and reports the ones that failed as
+ * batch item failures, so a retry resumes from the first failed sequence
+ * number instead of replaying the whole batch. Needs reportBatchItemFailures
+ * on the event source mapping.
+ *
+ * Records are processed one by one, or with STREAM_PROCESSING_MODE=ordered-parallel
+ * concurrently across payments while keeping each payment's records in order.
+ * Their PaymentCompleted events are published together once the batch is
+ * processed; records whose event was not accepted are reported as failed.
+ *
+ * With STREAM_CHECKPOINTS set, records a retried batch replays after they
+ * already succeeded are skipped (see {@link StreamCheckpoints}).
+ */
+public class Handler implements RequestHandler<DynamodbEvent, StreamsEventResponse> {
     private static final Logger logger = LoggerFactory.getLogger(Handler.class);
     private static final Metrics metrics = MetricsFactory.getMetricsInstance();
     private final StreamProcessorService streamProcessorService;
+    private final BatchMessageHandler<DynamodbEvent, StreamsEventResponse> batchHandler;
+    private final OrderedParallelProcessor orderedParallelProcessor;
+    private final StreamCheckpoints checkpoints;
+    private final Set<String> handledSequenceNumbers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger checkpointSkipped = new AtomicInteger();
 
     public Handler() {
         this.streamProcessorService = new StreamProcessorService();
+        this.batchHandler = new BatchMessageHandlerBuilder()
+            .withDynamoDbBatchHandler()
+            .buildWithRawMessageHandler(this::processRecord);
+        this.orderedParallelProcessor = "ordered-parallel".equalsIgnoreCase(System.getenv("STREAM_PROCESSING_MODE"))
+            ? OrderedParallelProcessor.fromEnvironment()
+            : null;
+        this.checkpoints = StreamCheckpoints.fromEnvironment();
     }
 
     @Logging
     @FlushMetrics(captureColdStart = true)
     @Tracing
     @Override
-    public Void handleRequest(DynamodbEvent event, Context context) {
-        int successCount = 0;
-        int failureCount = 0;
+    public StreamsEventResponse handleRequest(DynamodbEvent event, Context context) {
         int totalCount = event.getRecords().size();
+        handledSequenceNumbers.clear();
+        checkpointSkipped.set(0);
+        if (checkpoints != null) {
+            checkpoints.load(event.getRecords());
+        }
 
-        try {
-            for (DynamodbEvent.DynamodbStreamRecord record : event.getRecords()) {
-                metrics.addMetric("ExtractedRecords", 1, MetricUnit.COUNT);
-                PaymentStreamEvent extractedData = streamProcessorService.extractRecord(record);
+        StreamsEventResponse response = orderedParallelProcessor != null
+            ? orderedParallelProcessor.process(event.getRecords(), this::processRecord)
+            : batchHandler.processBatch(event, context);
 
-                // Add correlation ID to MDC for tracking
-                if (extractedData.correlationId() != null) {
-                    MDC.put("correlation_id", extractedData.correlationId());
-                }
+        Set<String> unpublished = streamProcessorService.publishPendingEvents();
+        if (!unpublished.isEmpty()) {
+            response = withFailures(response, unpublished);
+        }
+
+        Set<String> failedSequenceNumbers = new HashSet<>();
+        if (response.getBatchItemFailures() != null) {
+            response.getBatchItemFailures().forEach(failure -> failedSequenceNumbers.add(failure.getItemIdentifier()));
+        }
+        if (checkpoints != null) {
+            checkpoints.advance(event.getRecords(), handledSequenceNumbers, failedSequenceNumbers);
+        }
+
+        int failureCount = failedSequenceNumbers.size();
+        int successCount = totalCount - failureCount;
+
+        logger.info("BATCH COMPLETE",
+                entry("success_count", successCount),
+                entry("failure_count", failureCount),
+                entry("checkpoint_skipped", checkpointSkipped.get()),
+                entry("total_records", totalCount));
+
+        metrics.addMetric("BatchSize", totalCount, MetricUnit.COUNT);
+        metrics.addMetric("SuccessfulRecords", successCount, MetricUnit.COUNT);
+        metrics.addMetric("FailedRecords", failureCount, MetricUnit.COUNT);
+        if (checkpoints != null) {
+            metrics.addMetric("CheckpointSkippedRecords", checkpointSkipped.get(), MetricUnit.COUNT);
+        }
+
+        return response;
+    }
 
-                streamProcessorService.processSingleRecord(extractedData);
+    private static StreamsEventResponse withFailures(StreamsEventResponse response, Set<String> sequenceNumbers) {
+        List<StreamsEventResponse.BatchItemFailure> failures = response.getBatchItemFailures() != null
+            ? new ArrayList<>(response.getBatchItemFailures())
+            : new ArrayList<>();
 
-                logger.info("RECORD PROCESSED", 
-                    entry("payment_id", extractedData.paymentId()),
-                    entry("ride_id", extractedData.rideId()));
-                successCount++;
+        Set<String> reported = new HashSet<>();
+        failures.forEach(failure -> reported.add(failure.getItemIdentifier()));
+        for (String sequenceNumber : sequenceNumbers) {
+            if (reported.add(sequenceNumber)) {
+                failures.add(new StreamsEventResponse.BatchItemFailure(sequenceNumber));
             }
-            
-            logger.info("BATCH COMPLETE",
-                    entry("success_count", successCount),
-                    entry("failure_count", failureCount),
-                    entry("total_records", totalCount));
-
-        } catch (StreamProcessorService.BatchExcpetion ex) {
-            failureCount++;
-
-            logger.error("BATCH FAILURES",
-                    entry("payment_id", ex.getPaymentStreamEvent().paymentId()),
-                    entry("success_count", successCount),
-                    entry("failure_count", failureCount),
-                    entry("total_records", totalCount));
+        }
+        return new StreamsEventResponse(failures);
+    }
+
+    private void processRecord(DynamodbEvent.DynamodbStreamRecord record) {
+        if (!streamProcessorService.isRelevant(record)) {
+            metrics.addMetric("SkippedRecords", 1, MetricUnit.COUNT);
+            return;
+        }
+
+        if (checkpoints != null && checkpoints.isProcessed(record)) {
+            checkpointSkipped.incrementAndGet();
+            return;
+        }
+
+        metrics.addMetric("ExtractedRecords", 1, MetricUnit.COUNT);
+        PaymentStreamEvent extractedData = streamProcessorService.extractRecord(record);
+
+        // Add correlation ID to MDC for tracking
+        if (extractedData.correlationId() != null) {
+            MDC.put("correlation_id", extractedData.correlationId());
+        }
+
+        try {
+            streamProcessorService.processSingleRecord(extractedData);
+            handledSequenceNumbers.add(record.getDynamodb().getSequenceNumber());
+            metrics.addMetric("ProcessedRecords", 1, MetricUnit.COUNT);
+
+            logger.info("RECORD PROCESSED",
+                entry("payment_id", extractedData.paymentId()),
+                entry("ride_id", extractedData.rideId()));
+        } catch (RuntimeException ex) {
+            logger.error("RECORD FAILED",
+                entry("payment_id", extractedData.paymentId()),
+                entry("sequence_number", record.getDynamodb().getSequenceNumber()),
+                entry("error", ex.getMessage()));
             throw ex;
         } finally {
-            metrics.addMetric("BatchSize", totalCount, MetricUnit.COUNT);
-            metrics.addMetric("SuccessfulRecords", successCount, MetricUnit.COUNT);
-            metrics.addMetric("FailedRecords", failureCount, MetricUnit.COUNT);
+            MDC.remove("correlation_id");
         }
-        throw new RuntimeException("Simulated failure to trigger stream retry");
     }
-}
\ No newline at end of file
+}
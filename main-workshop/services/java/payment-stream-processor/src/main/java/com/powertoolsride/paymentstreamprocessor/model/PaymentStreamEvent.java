@@ -1,16 +1,68 @@
 package com.powertoolsride.paymentstreamprocessor.model;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-
-public record PaymentStreamEvent(
-    @JsonProperty("success") boolean success,
-    @JsonProperty("paymentId") String paymentId,
-    @JsonProperty("rideId") String rideId,
-    @JsonProperty("riderId") String riderId,
-    @JsonProperty("driverId") String driverId,
-    @JsonProperty("correlationId") String correlationId,
-    @JsonProperty("amount") String amount,
-    @JsonProperty("paymentMethod") String paymentMethod,
-    @JsonProperty("transactionId") String transactionId,
-    @JsonProperty("status") String status
-) {}
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * View of a Payments stream record's NewImage. Attributes are decoded when
+ * asked for rather than all up front, so a record costs only the attributes
+ * that are actually read.
+ */
+public final class PaymentStreamEvent {
+    private final String sequenceNumber;
+    private final Map<String, AttributeValue> image;
+
+    public PaymentStreamEvent(String sequenceNumber, Map<String, AttributeValue> image) {
+        this.sequenceNumber = sequenceNumber;
+        this.image = image != null ? image : Map.of();
+    }
+
+    public String sequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public String paymentId() {
+        return attribute("paymentId");
+    }
+
+    public String rideId() {
+        return attribute("rideId");
+    }
+
+    public String riderId() {
+        return attribute("riderId");
+    }
+
+    public String driverId() {
+        return attribute("driverId");
+    }
+
+    public String correlationId() {
+        return attribute("correlationId");
+    }
+
+    public String amount() {
+        return attribute("amount");
+    }
+
+    public String paymentMethod() {
+        return attribute("paymentMethod");
+    }
+
+    public String transactionId() {
+        return attribute("transactionId");
+    }
+
+    public String status() {
+        return attribute("status");
+    }
+
+    private String attribute(String key) {
+        AttributeValue attribute = image.get(key);
+        if (attribute == null) {
+            return null;
+        }
+        return attribute.getS() != null ? attribute.getS() : attribute.getN();
+    }
+}
@@ -0,0 +1,145 @@
+package com.powertoolsride.paymentstreamprocessor.service;
+
+import static software.amazon.lambda.powertools.logging.argument.StructuredArguments.entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+import software.amazon.lambda.powertools.metrics.Metrics;
+import software.amazon.lambda.powertools.metrics.MetricsFactory;
+import software.amazon.lambda.powertools.metrics.model.MetricUnit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the events of a stream batch and sends them in as few PutEvents
+ * calls as EventBridge allows: at most 10 entries and 256 KB per request.
+ * Every entry remembers the sequence number of the record it came from, so a
+ * failed entry fails only that record.
+ *
+ * Records may be queued from several threads; {@link #publish} runs once per
+ * batch after all records are processed.
+ */
+public class EventBatchPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(EventBatchPublisher.class);
+    private static final Metrics metrics = MetricsFactory.getMetricsInstance();
+
+    static final int MAX_ENTRIES_PER_REQUEST = 10;
+    static final int MAX_REQUEST_BYTES = 256 * 1024;
+
+    private final EventBridgeClient eventBridge;
+    private final ConcurrentLinkedQueue<PendingEvent> pending = new ConcurrentLinkedQueue<>();
+
+    private record PendingEvent(String sequenceNumber, PutEventsRequestEntry entry, int size) {}
+
+    public EventBatchPublisher(EventBridgeClient eventBridge) {
+        this.eventBridge = eventBridge;
+    }
+
+    public void add(String sequenceNumber, PutEventsRequestEntry entry) {
+        pending.add(new PendingEvent(sequenceNumber, entry, entrySize(entry)));
+    }
+
+    /**
+     * Sends everything queued since the last call and returns the sequence
+     * numbers of the records whose events were not accepted.
+     */
+    public Set<String> publish() {
+        Set<String> failedSequenceNumbers = new LinkedHashSet<>();
+        List<PendingEvent> chunk = new ArrayList<>(MAX_ENTRIES_PER_REQUEST);
+        int chunkBytes = 0;
+        int requests = 0;
+
+        PendingEvent event;
+        while ((event = pending.poll()) != null) {
+            if (event.size() > MAX_REQUEST_BYTES) {
+                logger.error("EVENT TOO LARGE",
+                    entry("sequence_number", event.sequenceNumber()),
+                    entry("size_bytes", event.size()));
+                failedSequenceNumbers.add(event.sequenceNumber());
+                continue;
+            }
+
+            if (chunk.size() == MAX_ENTRIES_PER_REQUEST || chunkBytes + event.size() > MAX_REQUEST_BYTES) {
+                send(chunk, failedSequenceNumbers);
+                requests++;
+                chunk = new ArrayList<>(MAX_ENTRIES_PER_REQUEST);
+                chunkBytes = 0;
+            }
+            chunk.add(event);
+            chunkBytes += event.size();
+        }
+
+        if (!chunk.isEmpty()) {
+            send(chunk, failedSequenceNumbers);
+            requests++;
+        }
+
+        if (requests > 0) {
+            metrics.addMetric("PutEventsRequests", requests, MetricUnit.COUNT);
+        }
+        return failedSequenceNumbers;
+    }
+
+    private void send(List<PendingEvent> chunk, Set<String> failedSequenceNumbers) {
+        PutEventsRequest request = PutEventsRequest.builder()
+            .entries(chunk.stream().map(PendingEvent::entry).toList())
+            .build();
+
+        PutEventsResponse result;
+        try {
+            result = eventBridge.putEvents(request);
+        } catch (SdkException e) {
+            logger.error("PUT EVENTS FAILED",
+                entry("entry_count", chunk.size()),
+                entry("error", e.getMessage()));
+            chunk.forEach(event -> failedSequenceNumbers.add(event.sequenceNumber()));
+            return;
+        }
+
+        if (result.failedEntryCount() == null || result.failedEntryCount() == 0) {
+            return;
+        }
+
+        // Result entries are in the same order as the request entries
+        List<PutEventsResultEntry> entries = result.entries();
+        for (int i = 0; i < chunk.size(); i++) {
+            PutEventsResultEntry resultEntry = i < entries.size() ? entries.get(i) : null;
+            if (resultEntry == null || resultEntry.errorCode() != null) {
+                logger.error("EVENT REJECTED",
+                    entry("sequence_number", chunk.get(i).sequenceNumber()),
+                    entry("error_code", resultEntry != null ? resultEntry.errorCode() : null),
+                    entry("error", resultEntry != null ? resultEntry.errorMessage() : null));
+                failedSequenceNumbers.add(chunk.get(i).sequenceNumber());
+            }
+        }
+    }
+
+    // Entry size as EventBridge counts it towards the request limit
+    static int entrySize(PutEventsRequestEntry entry) {
+        int size = entry.time() != null ? 14 : 0;
+        size += utf8Length(entry.source());
+        size += utf8Length(entry.detailType());
+        size += utf8Length(entry.detail());
+        if (entry.hasResources()) {
+            for (String resource : entry.resources()) {
+                size += utf8Length(resource);
+            }
+        }
+        return size;
+    }
+
+    private static int utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.powertoolsride.paymentstreamprocessor.service;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Processes a batch of stream records with one virtual thread per item key
+ * (paymentId). Records of the same payment run in stream order, while
+ * different payments overlap. At most {@code maxConcurrency} payments are in
+ * progress at once.
+ *
+ * When a record fails, the later records of the same payment are not
+ * processed and are reported as failed too, so a retry replays that payment's
+ * changes in order.
+ *
+ * The caller's MDC (request id, function name, ...) is copied into each
+ * payment's thread so its log lines stay correlated with the invocation.
+ */
+public class OrderedParallelProcessor {
+    private final int maxConcurrency;
+
+    public OrderedParallelProcessor(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public static OrderedParallelProcessor fromEnvironment() {
+        String maxConcurrency = System.getenv("STREAM_MAX_CONCURRENCY");
+        return new OrderedParallelProcessor(
+            (maxConcurrency != null && !maxConcurrency.isEmpty()) ? Integer.parseInt(maxConcurrency) : 10);
+    }
+
+    public StreamsEventResponse process(List<DynamodbEvent.DynamodbStreamRecord> records,
+                                        Consumer<DynamodbEvent.DynamodbStreamRecord> handler) {
+        Map<String, List<DynamodbEvent.DynamodbStreamRecord>> recordsByKey = new LinkedHashMap<>();
+        for (DynamodbEvent.DynamodbStreamRecord record : records) {
+            recordsByKey.computeIfAbsent(itemKey(record), key -> new ArrayList<>()).add(record);
+        }
+
+        ConcurrentLinkedQueue<String> failedSequenceNumbers = new ConcurrentLinkedQueue<>();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Map<String, String> logContext = MDC.getCopyOfContextMap();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<DynamodbEvent.DynamodbStreamRecord> group : recordsByKey.values()) {
+                executor.submit(() -> {
+                    if (logContext != null) {
+                        MDC.setContextMap(logContext);
+                    }
+                    try {
+                        processInOrder(group, handler, permits, failedSequenceNumbers);
+                    } finally {
+                        MDC.clear();
+                    }
+                });
+            }
+        }
+
+        List<StreamsEventResponse.BatchItemFailure> failures = new ArrayList<>();
+        for (String sequenceNumber : failedSequenceNumbers) {
+            failures.add(new StreamsEventResponse.BatchItemFailure(sequenceNumber));
+        }
+        return new StreamsEventResponse(failures);
+    }
+
+    private void processInOrder(List<DynamodbEvent.DynamodbStreamRecord> group,
+                                Consumer<DynamodbEvent.DynamodbStreamRecord> handler,
+                                Semaphore permits,
+                                ConcurrentLinkedQueue<String> failedSequenceNumbers) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            group.forEach(record -> failedSequenceNumbers.add(record.getDynamodb().getSequenceNumber()));
+            return;
+        }
+
+        try {
+            for (int i = 0; i < group.size(); i++) {
+                try {
+                    handler.accept(group.get(i));
+                } catch (RuntimeException e) {
+                    for (int j = i; j < group.size(); j++) {
+                        failedSequenceNumbers.add(group.get(j).getDynamodb().getSequenceNumber());
+                    }
+                    return;
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static String itemKey(DynamodbEvent.DynamodbStreamRecord record) {
+        Map<String, AttributeValue> keys = record.getDynamodb().getKeys();
+        AttributeValue paymentId = keys != null ? keys.get("paymentId") : null;
+        if (paymentId != null && paymentId.getS() != null) {
+            return paymentId.getS();
+        }
+        // Without a key there is nothing to order against
+        return record.getDynamodb().getSequenceNumber();
+    }
+}
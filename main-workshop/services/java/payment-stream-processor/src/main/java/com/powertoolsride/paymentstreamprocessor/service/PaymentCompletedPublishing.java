@@ -0,0 +1,30 @@
+package com.powertoolsride.paymentstreamprocessor.service;
+
+/**
+ * Which component publishes PaymentCompleted, from PAYMENT_COMPLETED_PUBLISHING
+ * shared by payment-processor and payment-stream-processor:
+ * - DIRECT: payment-processor, right after the gateway approves
+ * - STREAM: payment-stream-processor, from the Payments table stream
+ * - BOTH (default): both, while migrating between the two; consumers discard
+ *   the second copy by its dedupKey
+ */
+public enum PaymentCompletedPublishing {
+    DIRECT, STREAM, BOTH;
+
+    public static PaymentCompletedPublishing fromEnvironment() {
+        String value = System.getenv("PAYMENT_COMPLETED_PUBLISHING");
+        return (value != null && !value.isEmpty()) ? valueOf(value.trim().toUpperCase()) : BOTH;
+    }
+
+    public static String dedupKey(String paymentId) {
+        return "PaymentCompleted#" + paymentId;
+    }
+
+    public boolean publishesDirect() {
+        return this != STREAM;
+    }
+
+    public boolean publishesFromStream() {
+        return this != DIRECT;
+    }
+}
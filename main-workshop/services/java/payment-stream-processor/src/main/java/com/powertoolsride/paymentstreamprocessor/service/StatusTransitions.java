@@ -0,0 +1,57 @@
+package com.powertoolsride.paymentstreamprocessor.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Payment status transitions the stream processor reacts to, compared between
+ * a record's OldImage and NewImage. A modification that leaves the status
+ * unchanged (a reconciliation attribute, a TTL touch) never matches, so an
+ * already-completed payment is not published again.
+ *
+ * Configured by STREAM_EMIT_TRANSITIONS as comma-separated "from->to" pairs.
+ * "*" as the from status matches any other status, and "none" matches a
+ * record without an OldImage (an INSERT). Defaults to "*->completed".
+ */
+public class StatusTransitions {
+    private static final String ANY = "*";
+    private static final String NONE = "none";
+
+    private final Map<String, Set<String>> fromStatusesByTarget;
+
+    public StatusTransitions(Map<String, Set<String>> fromStatusesByTarget) {
+        this.fromStatusesByTarget = fromStatusesByTarget;
+    }
+
+    public static StatusTransitions fromEnvironment() {
+        String transitions = System.getenv("STREAM_EMIT_TRANSITIONS");
+        return parse((transitions != null && !transitions.isEmpty()) ? transitions : "*->completed");
+    }
+
+    static StatusTransitions parse(String spec) {
+        Map<String, Set<String>> fromStatusesByTarget = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("->");
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Invalid status transition '" + entry + "', expected from->to");
+            }
+            fromStatusesByTarget.computeIfAbsent(parts[1].trim().toLowerCase(), key -> new HashSet<>())
+                .add(parts[0].trim().toLowerCase());
+        }
+        return new StatusTransitions(fromStatusesByTarget);
+    }
+
+    public boolean matches(String oldStatus, String newStatus) {
+        if (newStatus == null || newStatus.equalsIgnoreCase(oldStatus)) {
+            return false;
+        }
+
+        Set<String> fromStatuses = fromStatusesByTarget.get(newStatus.toLowerCase());
+        if (fromStatuses == null) {
+            return false;
+        }
+        return fromStatuses.contains(ANY) || fromStatuses.contains(oldStatus != null ? oldStatus.toLowerCase() : NONE);
+    }
+}
@@ -0,0 +1,209 @@
+package com.powertoolsride.paymentstreamprocessor.service;
+
+import static software.amazon.lambda.powertools.logging.argument.StructuredArguments.entry;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Remembers the highest stream sequence number handled per payment, so that
+ * records a retried batch replays after they already succeeded are skipped
+ * instead of being published again.
+ *
+ * Marks are kept per stream ARN and paymentId: a stream record does not say
+ * which shard it came from, but all changes of one item are in one shard and
+ * in sequence number order, so a per-item mark never skips a record that was
+ * not handled. A mark only moves past records that succeeded and follow no
+ * failed record of the same payment.
+ *
+ * STREAM_CHECKPOINTS=memory keeps the marks of a warm container in memory
+ * (at most STREAM_CHECKPOINT_CACHE_SIZE payments, default 10000).
+ * STREAM_CHECKPOINTS=dynamodb also stores them in CHECKPOINT_TABLE_NAME
+ * (default IDEMPOTENCY_TABLE_NAME, partition key "id", TTL "expiration"),
+ * read once per batch and expiring with the 24 hour stream retention.
+ */
+public class StreamCheckpoints {
+    private static final Logger logger = LoggerFactory.getLogger(StreamCheckpoints.class);
+    private static final int MAX_KEYS_PER_BATCH_GET = 100;
+    private static final long RETENTION_SECONDS = 24 * 60 * 60;
+
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final Map<String, BigInteger> marks;
+
+    public StreamCheckpoints(DynamoDbClient dynamoDb, String tableName, int maxEntries) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.marks = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BigInteger> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Returns null unless STREAM_CHECKPOINTS is "memory" or "dynamodb".
+     */
+    public static StreamCheckpoints fromEnvironment() {
+        String mode = System.getenv("STREAM_CHECKPOINTS");
+        String cacheSize = System.getenv("STREAM_CHECKPOINT_CACHE_SIZE");
+        int maxEntries = (cacheSize != null && !cacheSize.isEmpty()) ? Integer.parseInt(cacheSize) : 10000;
+
+        if ("memory".equalsIgnoreCase(mode)) {
+            return new StreamCheckpoints(null, null, maxEntries);
+        }
+        if ("dynamodb".equalsIgnoreCase(mode)) {
+            String tableName = System.getenv("CHECKPOINT_TABLE_NAME");
+            if (tableName == null || tableName.isEmpty()) {
+                tableName = System.getenv("IDEMPOTENCY_TABLE_NAME");
+            }
+            return new StreamCheckpoints(DynamoDbClient.builder().build(), tableName, maxEntries);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the stored marks of the batch's payments that this container does
+     * not know yet, in as few requests as possible.
+     */
+    public void load(List<DynamodbEvent.DynamodbStreamRecord> records) {
+        if (dynamoDb == null) {
+            return;
+        }
+
+        Set<String> unknown = new HashSet<>();
+        for (DynamodbEvent.DynamodbStreamRecord record : records) {
+            String key = checkpointKey(record);
+            if (key != null && !marks.containsKey(key)) {
+                unknown.add(key);
+            }
+        }
+
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String key : unknown) {
+            keys.add(Map.of("id", AttributeValue.builder().s(key).build()));
+            if (keys.size() == MAX_KEYS_PER_BATCH_GET) {
+                loadMarks(keys);
+                keys = new ArrayList<>();
+            }
+        }
+        if (!keys.isEmpty()) {
+            loadMarks(keys);
+        }
+    }
+
+    public boolean isProcessed(DynamodbEvent.DynamodbStreamRecord record) {
+        String key = checkpointKey(record);
+        if (key == null) {
+            return false;
+        }
+
+        BigInteger mark = marks.get(key);
+        return mark != null && new BigInteger(record.getDynamodb().getSequenceNumber()).compareTo(mark) <= 0;
+    }
+
+    /**
+     * Moves the marks past the records of the batch that were handled, up to
+     * the first failed record of each payment.
+     */
+    public void advance(List<DynamodbEvent.DynamodbStreamRecord> records,
+                        Set<String> handledSequenceNumbers,
+                        Set<String> failedSequenceNumbers) {
+        Map<String, BigInteger> highest = new HashMap<>();
+        Set<String> blocked = new HashSet<>();
+
+        for (DynamodbEvent.DynamodbStreamRecord record : records) {
+            String key = checkpointKey(record);
+            String sequenceNumber = record.getDynamodb().getSequenceNumber();
+            if (key == null) {
+                continue;
+            }
+            if (failedSequenceNumbers.contains(sequenceNumber)) {
+                blocked.add(key);
+            } else if (!blocked.contains(key) && handledSequenceNumbers.contains(sequenceNumber)) {
+                highest.merge(key, new BigInteger(sequenceNumber), BigInteger::max);
+            }
+        }
+
+        highest.forEach((key, sequenceNumber) -> marks.merge(key, sequenceNumber, BigInteger::max));
+
+        if (dynamoDb != null && !highest.isEmpty()) {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                highest.forEach((key, sequenceNumber) -> executor.submit(() -> storeMark(key, sequenceNumber)));
+            }
+        }
+    }
+
+    private void loadMarks(List<Map<String, AttributeValue>> keys) {
+        BatchGetItemRequest request = BatchGetItemRequest.builder()
+            .requestItems(Map.of(tableName, KeysAndAttributes.builder().keys(keys).build()))
+            .build();
+
+        try {
+            BatchGetItemResponse response = dynamoDb.batchGetItem(request);
+            // Unprocessed keys stay unknown, so their records are simply handled again
+            for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+                AttributeValue sequenceNumber = item.get("sequenceNumber");
+                if (sequenceNumber != null && sequenceNumber.n() != null) {
+                    marks.merge(item.get("id").s(), new BigInteger(sequenceNumber.n()), BigInteger::max);
+                }
+            }
+        } catch (SdkException e) {
+            logger.warn("CHECKPOINT LOAD FAILED", entry("error", e.getMessage()));
+        }
+    }
+
+    private void storeMark(String key, BigInteger sequenceNumber) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(Map.of("id", AttributeValue.builder().s(key).build()))
+            .updateExpression("SET #sequenceNumber = :sequenceNumber, #expiration = :expiration")
+            .conditionExpression("attribute_not_exists(#sequenceNumber) OR #sequenceNumber < :sequenceNumber")
+            .expressionAttributeNames(Map.of("#sequenceNumber", "sequenceNumber", "#expiration", "expiration"))
+            .expressionAttributeValues(Map.of(
+                ":sequenceNumber", AttributeValue.builder().n(sequenceNumber.toString()).build(),
+                ":expiration", AttributeValue.builder().n(String.valueOf(Instant.now().getEpochSecond() + RETENTION_SECONDS)).build()))
+            .build();
+
+        try {
+            dynamoDb.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // Another invocation has already moved the mark further
+        } catch (SdkException e) {
+            // Without the stored mark a retry only publishes the event again
+            logger.warn("CHECKPOINT STORE FAILED", entry("checkpoint_key", key), entry("error", e.getMessage()));
+        }
+    }
+
+    private static String checkpointKey(DynamodbEvent.DynamodbStreamRecord record) {
+        var keys = record.getDynamodb().getKeys();
+        var paymentId = keys != null ? keys.get("paymentId") : null;
+        if (paymentId == null || paymentId.getS() == null) {
+            return null;
+        }
+        return "checkpoint#" + record.getEventSourceARN() + "#" + paymentId.getS();
+    }
+}
@@ -7,23 +7,48 @@ import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeVal
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
 
 public class StreamProcessorService {
-    private final EventBridgeClient eventBridge;
+    private final EventBatchPublisher eventPublisher;
     private final String eventBusName;
     private final ObjectMapper objectMapper;
+    private final PaymentCompletedPublishing completedPublishing;
+    private final StatusTransitions emitTransitions;
 
     public StreamProcessorService() {
-        this.eventBridge = EventBridgeClient.builder().build();
+        this.eventPublisher = new EventBatchPublisher(EventBridgeClient.builder().build());
         this.eventBusName = System.getenv("EVENT_BUS_NAME");
         this.objectMapper = new ObjectMapper();
+        this.completedPublishing = PaymentCompletedPublishing.fromEnvironment();
+        this.emitTransitions = StatusTransitions.fromEnvironment();
+    }
+
+    /**
+     * Whether the record can produce a PaymentCompleted, decided from the
+     * publishing mode, the event name, the status transition and the rider alone
+     * so that other records are skipped before anything else is read or allocated.
+     */
+    public boolean isRelevant(DynamodbEvent.DynamodbStreamRecord record) {
+        // In DIRECT mode payment-processor has already published it
+        if (!completedPublishing.publishesFromStream()) {
+            return false;
+        }
+
+        String eventName = record.getEventName();
+        if (!"INSERT".equals(eventName) && !"MODIFY".equals(eventName)) {
+            return false;
+        }
+
+        Map<String, AttributeValue> newImage = record.getDynamodb().getNewImage();
+        String oldStatus = getAttributeValue(record.getDynamodb().getOldImage(), "status");
+        return emitTransitions.matches(oldStatus, getAttributeValue(newImage, "status"))
+            && !"rider-batch-test".equals(getAttributeValue(newImage, "riderId"));
     }
 
     public PaymentStreamEvent extractRecord(DynamodbEvent.DynamodbStreamRecord record) {
@@ -33,30 +58,7 @@ public class StreamProcessorService {
             Thread.currentThread().interrupt();
         }
 
-        Map<String, AttributeValue> newImage = record.getDynamodb().getNewImage();
-
-        String paymentId = getAttributeValue(newImage, "paymentId");
-        String rideId = getAttributeValue(newImage, "rideId");
-        String riderId = getAttributeValue(newImage, "riderId");
-        String driverId = getAttributeValue(newImage, "driverId");
-        String correlationId = getAttributeValue(newImage, "correlationId");
-        String amount = getAttributeValue(newImage, "amount");
-        String paymentMethod = getAttributeValue(newImage, "paymentMethod");
-        String transactionId = getAttributeValue(newImage, "transactionId");
-        String status = getAttributeValue(newImage, "status");
-
-        return new PaymentStreamEvent(
-            true,
-            paymentId,
-            rideId,
-            riderId,
-            driverId,
-            correlationId,
-            amount,
-            paymentMethod,
-            transactionId,
-            status
-        );
+        return new PaymentStreamEvent(record.getDynamodb().getSequenceNumber(), record.getDynamodb().getNewImage());
     }
 
     public PaymentStreamEvent processSingleRecord(PaymentStreamEvent extractedData) {
@@ -80,6 +82,11 @@ public class StreamProcessorService {
             return;
         }
 
+        // In DIRECT mode payment-processor has already published it
+        if (!completedPublishing.publishesFromStream()) {
+            return;
+        }
+
         BigDecimal amountDecimal;
         try {
             amountDecimal = new BigDecimal(extractedData.amount());
@@ -97,13 +104,18 @@ public class StreamProcessorService {
             extractedData.paymentMethod(),
             extractedData.transactionId(),
             Instant.now().toString(),
-            extractedData.correlationId()
+            extractedData.correlationId(),
+            PaymentCompletedPublishing.dedupKey(extractedData.paymentId())
         );
 
-        sendEventToEventBridge("PaymentCompleted", completionEvent);
+        queueEvent(extractedData.sequenceNumber(), "PaymentCompleted", completionEvent);
     }
 
-    public void sendEventToEventBridge(String detailType, PaymentCompletedEvent eventDetail) {
+    /**
+     * Queues the event for the batch's PutEvents calls; nothing is sent until
+     * {@link #publishPendingEvents}.
+     */
+    public void queueEvent(String sequenceNumber, String detailType, PaymentCompletedEvent eventDetail) {
         String eventDetailJson;
         try {
             eventDetailJson = objectMapper.writeValueAsString(eventDetail);
@@ -118,15 +130,15 @@ public class StreamProcessorService {
             .eventBusName(eventBusName)
             .build();
 
-        PutEventsRequest request = PutEventsRequest.builder()
-            .entries(entry)
-            .build();
-
-        PutEventsResponse result = eventBridge.putEvents(request);
+        eventPublisher.add(sequenceNumber, entry);
+    }
 
-        if (result.failedEntryCount() > 0) {
-            throw new RuntimeException("Failed to send event: " + result.entries().get(0).errorCode());
-        }
+    /**
+     * Publishes the events queued by the batch and returns the sequence
+     * numbers of the records whose events EventBridge did not accept.
+     */
+    public Set<String> publishPendingEvents() {
+        return eventPublisher.publish();
     }
 
     public String getAttributeValue(Map<String, AttributeValue> attributes, String key) {
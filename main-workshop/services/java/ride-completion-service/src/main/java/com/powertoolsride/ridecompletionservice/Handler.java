@@ -21,6 +21,12 @@ public class Handler implements RequestHandler<ScheduledEvent, Void> {
         try {
             RideCompletionResult result = rideCompletionService.processPaymentCompletedEvent(event);
 
+            if ("DuplicateEvent".equals(result.errorType())) {
+                System.out.println("Skipping duplicate payment event - PaymentId: " + result.paymentId() +
+                    ", RideId: " + result.rideId());
+                return null;
+            }
+
             if (!result.success()) {
                 System.out.println(
                     "ERROR: Failed to process payment event - PaymentId: " + result.paymentId() +
@@ -36,7 +42,8 @@ public class Handler implements RequestHandler<ScheduledEvent, Void> {
                 ", RideId: " + result.rideId() +
                 ", DriverId: " + result.driverId() +
                 ", RideUpdateSuccessful: " + result.rideUpdateSuccessful() +
-                ", DriverUpdateSuccessful: " + result.driverUpdateSuccessful());
+                ", DriverUpdateSuccessful: " + result.driverUpdateSuccessful() +
+                (result.redispatchedRideId() != null ? ", RedispatchedRideId: " + result.redispatchedRideId() : ""));
         } catch (Exception ex) {
             System.out.println("ERROR: Unexpected error processing payment event - Error: " + ex.getMessage());
             throw ex;
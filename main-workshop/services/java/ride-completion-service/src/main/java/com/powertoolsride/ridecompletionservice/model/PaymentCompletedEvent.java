@@ -18,5 +18,6 @@ public record PaymentCompletedEvent(
     @JsonProperty("paymentMethod") String paymentMethod,
     @JsonProperty("transactionId") String transactionId,
     @JsonProperty("timestamp") String timestamp,
-    @JsonProperty("correlationId") String correlationId
+    @JsonProperty("correlationId") String correlationId,
+    @JsonProperty("dedupKey") String dedupKey
 ) {}
@@ -18,7 +18,8 @@ public record RideCompletionResult(
     @JsonProperty("driverUpdateSuccessful") boolean driverUpdateSuccessful,
     @JsonProperty("success") boolean success,
     @JsonProperty("errorType") String errorType,
-    @JsonProperty("errorMessage") String errorMessage
+    @JsonProperty("errorMessage") String errorMessage,
+    @JsonProperty("redispatchedRideId") String redispatchedRideId
 ) {
     public static Builder builder() {
         return new Builder();
@@ -36,6 +37,7 @@ public record RideCompletionResult(
         private boolean success;
         private String errorType;
         private String errorMessage;
+        private String redispatchedRideId;
 
         public Builder paymentId(String paymentId) {
             this.paymentId = paymentId;
@@ -92,6 +94,11 @@ public record RideCompletionResult(
             return this;
         }
 
+        public Builder redispatchedRideId(String redispatchedRideId) {
+            this.redispatchedRideId = redispatchedRideId;
+            return this;
+        }
+
         public RideCompletionResult build() {
             return new RideCompletionResult(
                 paymentId,
@@ -104,7 +111,8 @@ public record RideCompletionResult(
                 driverUpdateSuccessful,
                 success,
                 errorType,
-                errorMessage
+                errorMessage,
+                redispatchedRideId
             );
         }
     }
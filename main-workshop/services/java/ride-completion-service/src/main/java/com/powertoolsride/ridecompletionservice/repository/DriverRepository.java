@@ -16,42 +16,119 @@ public class DriverRepository {
         this.tableName = tableName;
     }
 
-    public void updateDriverStatus(String driverId, String status) {
+    /**
+     * Takes a completed ride off the rides the driver carries and frees the
+     * driver once none are left, so a pooled driver stays busy while another
+     * rider is aboard. Returns the full driver item when the driver was freed,
+     * or null when it still carries a ride or already was available.
+     * Releasing the same ride again is a no-op.
+     */
+    public Map<String, AttributeValue> releaseRide(String driverId, String rideId) {
         if (driverId == null || driverId.isEmpty()) {
             throw new IllegalArgumentException("DriverId cannot be null or empty");
         }
 
-        if (status == null || status.isEmpty()) {
-            throw new IllegalArgumentException("Status cannot be null or empty");
+        Map<String, AttributeValue> remaining = updateActiveRides(driverId, rideId, "DELETE");
+        // DynamoDB drops the set together with its last ride
+        if (remaining.containsKey("activeRideIds")) {
+            return null;
         }
+        return markAvailable(driverId);
+    }
 
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("driverId", AttributeValue.builder().s(driverId).build());
+    /**
+     * Records that the driver carries the ride.
+     */
+    public void addActiveRide(String driverId, String rideId) {
+        updateActiveRides(driverId, rideId, "ADD");
+    }
 
-        Map<String, String> expressionAttributeNames = new HashMap<>();
-        expressionAttributeNames.put("#status", "status");
-        expressionAttributeNames.put("#updatedAt", "updatedAt");
+    public void removeActiveRide(String driverId, String rideId) {
+        updateActiveRides(driverId, rideId, "DELETE");
+    }
 
-        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-        expressionAttributeValues.put(":status", AttributeValue.builder().s(status).build());
-        expressionAttributeValues.put(":updatedAt", AttributeValue.builder().s(Instant.now().toString()).build());
+    /**
+     * Sets the driver available and returns the full driver item, or null
+     * when the driver already was available or still carries a ride. Only an
+     * actual transition to available frees the driver, so a repeated
+     * completion cannot hand the same driver out twice.
+     */
+    public Map<String, AttributeValue> markAvailable(String driverId) {
+        if (driverId == null || driverId.isEmpty()) {
+            throw new IllegalArgumentException("DriverId cannot be null or empty");
+        }
+
+        try {
+            return dynamoDb.updateItem(statusUpdate(driverId, "available", Map.of())
+                .conditionExpression("attribute_exists(driverId) AND attribute_not_exists(activeRideIds) AND #status <> :status")
+                .returnValues(ReturnValue.ALL_NEW)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build()).attributes();
+        } catch (ConditionalCheckFailedException e) {
+            if (e.hasItem() && !e.item().isEmpty()) {
+                return null;
+            }
+            throw new RuntimeException("Driver with ID " + driverId + " not found", e);
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to update driver status for driver " + driverId + ": " + e.getMessage(), e);
+        }
+    }
 
+    /**
+     * Moves an available driver to busy. Returns false when the driver is no
+     * longer available.
+     */
+    public boolean claimAvailableDriver(String driverId) {
+        try {
+            dynamoDb.updateItem(statusUpdate(driverId, "busy",
+                    Map.of(":available", AttributeValue.builder().s("available").build()))
+                .conditionExpression("#status = :available")
+                .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to update driver status for driver " + driverId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Map<String, AttributeValue> updateActiveRides(String driverId, String rideId, String action) {
         try {
             UpdateItemRequest request = UpdateItemRequest.builder()
                 .tableName(tableName)
-                .key(key)
-                .updateExpression("SET #status = :status, #updatedAt = :updatedAt")
-                .expressionAttributeNames(expressionAttributeNames)
-                .expressionAttributeValues(expressionAttributeValues)
+                .key(Map.of("driverId", AttributeValue.builder().s(driverId).build()))
+                .updateExpression(action + " activeRideIds :rideIds")
                 .conditionExpression("attribute_exists(driverId)")
-                .returnValues(ReturnValue.UPDATED_NEW)
+                .expressionAttributeValues(Map.of(":rideIds", AttributeValue.builder().ss(rideId).build()))
+                .returnValues(ReturnValue.ALL_NEW)
                 .build();
 
-            dynamoDb.updateItem(request);
+            return dynamoDb.updateItem(request).attributes();
         } catch (ConditionalCheckFailedException e) {
             throw new RuntimeException("Driver with ID " + driverId + " not found", e);
         } catch (DynamoDbException e) {
-            throw new RuntimeException("Failed to update driver status for driver " + driverId + ": " + e.getMessage(), e);
+            throw new RuntimeException("Failed to update rides of driver " + driverId + ": " + e.getMessage(), e);
         }
     }
+
+    private UpdateItemRequest.Builder statusUpdate(String driverId, String status,
+                                                   Map<String, AttributeValue> conditionValues) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("driverId", AttributeValue.builder().s(driverId).build());
+
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        expressionAttributeNames.put("#status", "status");
+        expressionAttributeNames.put("#updatedAt", "updatedAt");
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>(conditionValues);
+        expressionAttributeValues.put(":status", AttributeValue.builder().s(status).build());
+        expressionAttributeValues.put(":updatedAt", AttributeValue.builder().s(Instant.now().toString()).build());
+
+        return UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(key)
+            .updateExpression("SET #status = :status, #updatedAt = :updatedAt")
+            .expressionAttributeNames(expressionAttributeNames)
+            .expressionAttributeValues(expressionAttributeValues);
+    }
 }
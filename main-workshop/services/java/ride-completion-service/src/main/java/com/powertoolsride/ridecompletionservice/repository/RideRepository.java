@@ -16,7 +16,11 @@ public class RideRepository {
         this.tableName = tableName;
     }
 
-    public void updateRideStatus(String rideId, String status) {
+    /**
+     * Sets the ride status. Returns false when the ride already has that
+     * status, which marks a repeated event for the same ride.
+     */
+    public boolean updateRideStatus(String rideId, String status) {
         if (rideId == null || rideId.isEmpty()) {
             throw new IllegalArgumentException("RideId cannot be null or empty");
         }
@@ -43,15 +47,92 @@ public class RideRepository {
                 .updateExpression("SET #status = :status, #updatedAt = :updatedAt")
                 .expressionAttributeNames(expressionAttributeNames)
                 .expressionAttributeValues(expressionAttributeValues)
-                .conditionExpression("attribute_exists(rideId)")
-                .returnValues(ReturnValue.UPDATED_NEW)
+                .conditionExpression("attribute_exists(rideId) AND #status <> :status")
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
                 .build();
 
             dynamoDb.updateItem(request);
+            return true;
         } catch (ConditionalCheckFailedException e) {
+            if (e.hasItem() && !e.item().isEmpty()) {
+                return false;
+            }
             throw new RuntimeException("Ride with ID " + rideId + " not found", e);
         } catch (DynamoDbException e) {
             throw new RuntimeException("Failed to update ride status for ride " + rideId + ": " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Assigns a driver to a ride only while it is still waitlisted.
+     * Returns false when the ride has left the waitlist in the meantime.
+     */
+    public boolean assignDriverToWaitlistedRide(String rideId, String driverId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("rideId", AttributeValue.builder().s(rideId).build());
+
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        expressionAttributeNames.put("#status", "status");
+        expressionAttributeNames.put("#updatedAt", "updatedAt");
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":driverId", AttributeValue.builder().s(driverId).build());
+        expressionAttributeValues.put(":status", AttributeValue.builder().s("driver-assigned").build());
+        expressionAttributeValues.put(":waitlisted", AttributeValue.builder().s("waitlisted").build());
+        expressionAttributeValues.put(":updatedAt", AttributeValue.builder().s(Instant.now().toString()).build());
+
+        try {
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression("SET driverId = :driverId, #status = :status, #updatedAt = :updatedAt")
+                .expressionAttributeNames(expressionAttributeNames)
+                .expressionAttributeValues(expressionAttributeValues)
+                .conditionExpression("#status = :waitlisted")
+                .build();
+
+            dynamoDb.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to assign driver to ride " + rideId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Undoes {@link #assignDriverToWaitlistedRide} when the assignment could
+     * not be announced, so the ride is matched again later.
+     */
+    public void returnRideToWaitlist(String rideId, String driverId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("rideId", AttributeValue.builder().s(rideId).build());
+
+        Map<String, String> expressionAttributeNames = new HashMap<>();
+        expressionAttributeNames.put("#status", "status");
+        expressionAttributeNames.put("#updatedAt", "updatedAt");
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":driverId", AttributeValue.builder().s(driverId).build());
+        expressionAttributeValues.put(":assigned", AttributeValue.builder().s("driver-assigned").build());
+        expressionAttributeValues.put(":waitlisted", AttributeValue.builder().s("waitlisted").build());
+        expressionAttributeValues.put(":updatedAt", AttributeValue.builder().s(Instant.now().toString()).build());
+
+        try {
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression("SET #status = :waitlisted, #updatedAt = :updatedAt REMOVE driverId")
+                .expressionAttributeNames(expressionAttributeNames)
+                .expressionAttributeValues(expressionAttributeValues)
+                .conditionExpression("#status = :assigned AND driverId = :driverId")
+                .build();
+
+            dynamoDb.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // The ride has moved on since; nothing to undo
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to return ride " + rideId + " to the waitlist: " + e.getMessage(), e);
+        }
+    }
 }
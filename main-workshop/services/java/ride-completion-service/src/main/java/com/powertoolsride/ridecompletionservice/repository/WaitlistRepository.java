@@ -0,0 +1,154 @@
+package com.powertoolsride.ridecompletionservice.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumer side of the ride waitlist written by driver-matching-service.
+ *
+ * An entry is first leased with a conditional update, so concurrent
+ * completions never hand the same ride to two drivers, and is only deleted
+ * once its ride has been assigned and announced. A lease that is released,
+ * or that expires because its holder died, makes the entry claimable again.
+ */
+public class WaitlistRepository {
+    private final DynamoDbClient dynamoDb;
+    private final String tableName;
+    private final String queueId;
+    private final int batchSize;
+    private final long leaseSeconds;
+
+    public WaitlistRepository(DynamoDbClient dynamoDb, String tableName, String queueId, int batchSize, long leaseSeconds) {
+        this.dynamoDb = dynamoDb;
+        this.tableName = tableName;
+        this.queueId = queueId;
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Reads the next {@code batchSize} unleased entries in priority order.
+     * Callers walk the page and lease entries from it, skipping those a
+     * concurrent caller got first, instead of re-reading the head of the
+     * queue after every lost race. DynamoDB applies the limit before the
+     * lease filter, so while the head of the queue is leased the query keeps
+     * paging until it has found enough entries or reached the end.
+     */
+    public List<Map<String, AttributeValue>> nextCandidates() {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":queueId", AttributeValue.builder().s(queueId).build());
+        expressionAttributeValues.put(":now", AttributeValue.builder().n(Long.toString(nowSeconds())).build());
+
+        List<Map<String, AttributeValue>> candidates = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        try {
+            do {
+                QueryRequest request = QueryRequest.builder()
+                    .tableName(tableName)
+                    .keyConditionExpression("queueId = :queueId")
+                    .filterExpression("attribute_not_exists(leaseExpiresAt) OR leaseExpiresAt < :now")
+                    .expressionAttributeValues(expressionAttributeValues)
+                    .projectionExpression("queueId, priorityKey")
+                    .limit(batchSize)
+                    .exclusiveStartKey(startKey)
+                    .build();
+
+                QueryResponse response = dynamoDb.query(request);
+                candidates.addAll(response.items());
+                startKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+            } while (candidates.size() < batchSize && startKey != null);
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to read waitlist: " + e.getMessage(), e);
+        }
+        return candidates.size() > batchSize ? candidates.subList(0, batchSize) : candidates;
+    }
+
+    /**
+     * Leases an entry for {@code leaseToken}. Returns the full entry, or null
+     * when it is gone or currently leased by someone else.
+     */
+    public Map<String, AttributeValue> tryLease(Map<String, AttributeValue> candidate, String leaseToken) {
+        long now = nowSeconds();
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":leaseToken", AttributeValue.builder().s(leaseToken).build());
+        expressionAttributeValues.put(":leaseExpiresAt", AttributeValue.builder().n(Long.toString(now + leaseSeconds)).build());
+        expressionAttributeValues.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+
+        try {
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(keyOf(candidate))
+                .updateExpression("SET leaseToken = :leaseToken, leaseExpiresAt = :leaseExpiresAt")
+                .conditionExpression("attribute_exists(priorityKey) AND " +
+                    "(attribute_not_exists(leaseExpiresAt) OR leaseExpiresAt < :now)")
+                .expressionAttributeValues(expressionAttributeValues)
+                .returnValues(ReturnValue.ALL_NEW)
+                .build();
+
+            return dynamoDb.updateItem(request).attributes();
+        } catch (ConditionalCheckFailedException e) {
+            // Already popped or leased by a concurrent completion
+            return null;
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to lease waitlist entry: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes a leased entry. Does nothing if the lease has been lost.
+     */
+    public void remove(Map<String, AttributeValue> entry) {
+        try {
+            DeleteItemRequest request = DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(keyOf(entry))
+                .conditionExpression("leaseToken = :leaseToken")
+                .expressionAttributeValues(Map.of(":leaseToken", entry.get("leaseToken")))
+                .build();
+
+            dynamoDb.deleteItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // Lease expired and the entry was taken over
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to remove waitlist entry: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gives a leased entry back to the queue at its original position.
+     */
+    public void release(Map<String, AttributeValue> entry) {
+        try {
+            UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(keyOf(entry))
+                .updateExpression("REMOVE leaseToken, leaseExpiresAt")
+                .conditionExpression("leaseToken = :leaseToken")
+                .expressionAttributeValues(Map.of(":leaseToken", entry.get("leaseToken")))
+                .build();
+
+            dynamoDb.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // Lease expired and the entry was taken over
+        } catch (DynamoDbException e) {
+            throw new RuntimeException("Failed to release waitlist entry: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, AttributeValue> keyOf(Map<String, AttributeValue> entry) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("queueId", entry.get("queueId"));
+        key.put("priorityKey", entry.get("priorityKey"));
+        return key;
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,69 @@
+package com.powertoolsride.ridecompletionservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Announces drivers returning to the available pool so dynamic-pricing-service
+ * can count supply per zone.
+ */
+public class DriverAvailabilityPublisher {
+    private final EventBridgeClient eventBridge;
+    private final ObjectMapper objectMapper;
+    private final String eventBusName;
+
+    public DriverAvailabilityPublisher(EventBridgeClient eventBridge, String eventBusName) {
+        this.eventBridge = eventBridge;
+        this.eventBusName = eventBusName;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    public void publishDriverAvailableEvent(String driverId, Map<String, AttributeValue> driver) {
+        if (eventBusName == null || eventBusName.isEmpty()) {
+            return;
+        }
+
+        // Drivers without a known position can't be placed in a zone
+        AttributeValue currentLocation = driver.get("currentLocation");
+        if (currentLocation == null || currentLocation.s() == null) {
+            return;
+        }
+
+        String eventDetailJson;
+        try {
+            ObjectNode detail = objectMapper.createObjectNode();
+            detail.put("driverId", driverId);
+            detail.set("location", objectMapper.readTree(currentLocation.s()));
+            detail.put("timestamp", Instant.now().toString());
+            detail.put("eventType", "DriverAvailable");
+            eventDetailJson = objectMapper.writeValueAsString(detail);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize event", e);
+        }
+
+        PutEventsRequestEntry entry = PutEventsRequestEntry.builder()
+            .source("ride-completion-service")
+            .detailType("DriverAvailable")
+            .detail(eventDetailJson)
+            .eventBusName(eventBusName)
+            .build();
+
+        PutEventsRequest request = PutEventsRequest.builder()
+            .entries(entry)
+            .build();
+
+        PutEventsResponse response = eventBridge.putEvents(request);
+
+        if (response.failedEntryCount() > 0) {
+            throw new RuntimeException("Failed to send event: " + response.entries().get(0).errorCode());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.powertoolsride.ridecompletionservice.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of event dedup keys already handled in this execution
+ * environment. It lets a copy that lands on the same warm container be
+ * dropped before any DynamoDB call; copies on other containers are caught by
+ * the conditional ride status update, which is the actual dedup.
+ */
+public class RecentEventKeys {
+    private final Map<String, Boolean> keys;
+
+    public RecentEventKeys(int maxEntries) {
+        this.keys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized boolean contains(String key) {
+        return keys.get(key) != null;
+    }
+
+    public synchronized void add(String key) {
+        keys.put(key, Boolean.TRUE);
+    }
+}
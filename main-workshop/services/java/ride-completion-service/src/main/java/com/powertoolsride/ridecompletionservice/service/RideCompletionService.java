@@ -7,7 +7,10 @@ import com.powertoolsride.ridecompletionservice.model.PaymentCompletedEvent;
 import com.powertoolsride.ridecompletionservice.model.RideCompletionResult;
 import com.powertoolsride.ridecompletionservice.repository.DriverRepository;
 import com.powertoolsride.ridecompletionservice.repository.RideRepository;
+import com.powertoolsride.ridecompletionservice.repository.WaitlistRepository;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 
 import java.util.Map;
 
@@ -17,6 +20,9 @@ public class RideCompletionService {
     private final RideRepository rideRepository;
     private final DriverRepository driverRepository;
     private final ObjectMapper objectMapper;
+    private final WaitlistDispatchService waitlistDispatchService;
+    private final DriverAvailabilityPublisher driverAvailabilityPublisher;
+    private final RecentEventKeys recentEventKeys;
 
     public RideCompletionService() {
         DynamoDbClient dynamoDb = DynamoDbClient.builder()
@@ -39,6 +45,38 @@ public class RideCompletionService {
         this.driverRepository = new DriverRepository(dynamoDb, driversTableName);
         this.objectMapper = new ObjectMapper();
         this.objectMapper.setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE);
+
+        EventBridgeClient eventBridge = EventBridgeClient.builder()
+            .overrideConfiguration(software.amazon.awssdk.core.client.config.ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new com.amazonaws.xray.interceptors.TracingInterceptor())
+                .build())
+            .build();
+
+        String waitlistTableName = System.getenv("WAITLIST_TABLE_NAME");
+        if (waitlistTableName != null && !waitlistTableName.isEmpty()) {
+            String queueId = System.getenv("WAITLIST_QUEUE_ID");
+            String claimBatchSize = System.getenv("WAITLIST_CLAIM_BATCH_SIZE");
+            String leaseSeconds = System.getenv("WAITLIST_LEASE_SECONDS");
+            WaitlistRepository waitlistRepository = new WaitlistRepository(
+                dynamoDb,
+                waitlistTableName,
+                (queueId != null && !queueId.isEmpty()) ? queueId : "rides",
+                (claimBatchSize != null && !claimBatchSize.isEmpty()) ? Integer.parseInt(claimBatchSize) : 10,
+                (leaseSeconds != null && !leaseSeconds.isEmpty()) ? Long.parseLong(leaseSeconds) : 60
+            );
+            this.waitlistDispatchService = new WaitlistDispatchService(
+                waitlistRepository, rideRepository, driverRepository, eventBridge, System.getenv("EVENT_BUS_NAME"));
+        } else {
+            this.waitlistDispatchService = null;
+        }
+
+        this.driverAvailabilityPublisher = Boolean.parseBoolean(System.getenv("SURGE_SUPPLY_EVENTS_ENABLED"))
+            ? new DriverAvailabilityPublisher(eventBridge, System.getenv("EVENT_BUS_NAME"))
+            : null;
+
+        String dedupSize = System.getenv("PAYMENT_EVENT_DEDUP_SIZE");
+        this.recentEventKeys = new RecentEventKeys(
+            (dedupSize != null && !dedupSize.isEmpty()) ? Integer.parseInt(dedupSize) : 10000);
     }
 
     public RideCompletionResult processPaymentCompletedEvent(ScheduledEvent event) {
@@ -55,6 +93,11 @@ public class RideCompletionService {
 
         validateEvent(paymentEvent);
 
+        String dedupKey = paymentEvent.dedupKey();
+        if (dedupKey != null && recentEventKeys.contains(dedupKey)) {
+            return duplicateResult(paymentEvent);
+        }
+
         resultBuilder
             .paymentId(paymentEvent.paymentId())
             .rideId(paymentEvent.rideId())
@@ -63,12 +106,39 @@ public class RideCompletionService {
             .paymentMethod(paymentEvent.paymentMethod())
             .amount(paymentEvent.amount());
 
+        // The driver is freed before the ride status is set: the status is the durable
+        // dedup marker, so an attempt that stops in between leaves the ride unmarked and
+        // its redelivery frees the driver again. Null when the driver already was available
+        Map<String, AttributeValue> freedDriver = null;
         try {
-            rideRepository.updateRideStatus(paymentEvent.rideId(), rideStatus);
+            freedDriver = driverRepository.releaseRide(paymentEvent.driverId(), paymentEvent.rideId());
+            resultBuilder.driverUpdateSuccessful(true);
+        } catch (RuntimeException e) {
+            resultBuilder
+                .driverUpdateSuccessful(false)
+                .errorType("DriverUpdateFailed")
+                .errorMessage(e.getMessage());
+
+            // A missing driver is test/synthetic data; anything else must be retried
+            // before the ride is marked
+            if (e.getMessage() == null || !e.getMessage().contains("not found")) {
+                throw e;
+            }
+        }
+
+        try {
+            // The conditional update is the durable dedup: a copy handled on
+            // any container already moved the ride to this status
+            if (!rideRepository.updateRideStatus(paymentEvent.rideId(), rideStatus)) {
+                if (dedupKey != null) {
+                    recentEventKeys.add(dedupKey);
+                }
+                return duplicateResult(paymentEvent);
+            }
             resultBuilder.rideUpdateSuccessful(true);
         } catch (RuntimeException e) {
             resultBuilder.rideUpdateSuccessful(false);
-            
+
             // Check if ride doesn't exist (test/synthetic data)
             if (e.getMessage() != null && e.getMessage().contains("not found")) {
                 resultBuilder
@@ -83,18 +153,24 @@ public class RideCompletionService {
             }
         }
 
-        try {
-            driverRepository.updateDriverStatus(paymentEvent.driverId(), "available");
-            resultBuilder.driverUpdateSuccessful(true);
-        } catch (Exception e) {
-            resultBuilder
-                .driverUpdateSuccessful(false)
-                .errorType("DriverUpdateFailed")
-                .errorMessage(e.getMessage());
+        // Every transition to available is a chance to serve the waitlist
+        String redispatchedRideId = null;
+        if (freedDriver != null && waitlistDispatchService != null) {
+            try {
+                redispatchedRideId = waitlistDispatchService.dispatchToDriver(paymentEvent.driverId(), getDriverName(freedDriver));
+                resultBuilder.redispatchedRideId(redispatchedRideId);
+            } catch (RuntimeException e) {
+                // Dispatch undoes its own steps, so the driver stays available and the ride waitlisted
+                System.err.println("[WARN] Failed to dispatch " + paymentEvent.driverId() + " to the waitlist: " + e.getMessage());
+            }
+        }
 
-            RideCompletionResult result = resultBuilder.build();
-            if (!result.rideUpdateSuccessful()) {
-                throw e;
+        // A driver handed straight to a waitlisted ride never rejoins the supply
+        if (freedDriver != null && driverAvailabilityPublisher != null && redispatchedRideId == null) {
+            try {
+                driverAvailabilityPublisher.publishDriverAvailableEvent(paymentEvent.driverId(), freedDriver);
+            } catch (RuntimeException e) {
+                System.err.println("[WARN] Failed to publish DriverAvailable for " + paymentEvent.driverId() + ": " + e.getMessage());
             }
         }
 
@@ -103,6 +179,11 @@ public class RideCompletionService {
         // Consider success if driver update succeeded, even if ride doesn't exist (test data)
         boolean isSuccess = result.driverUpdateSuccessful() && 
                            (result.rideUpdateSuccessful() || "RideNotFound".equals(result.errorType()));
+
+        // Only once handled, so that a failed attempt is not mistaken for a duplicate on retry
+        if (isSuccess && dedupKey != null) {
+            recentEventKeys.add(dedupKey);
+        }
         
         return RideCompletionResult.builder()
             .paymentId(result.paymentId())
@@ -116,9 +197,33 @@ public class RideCompletionService {
             .success(isSuccess)
             .errorType(result.errorType())
             .errorMessage(result.errorMessage())
+            .redispatchedRideId(result.redispatchedRideId())
+            .build();
+    }
+
+    private RideCompletionResult duplicateResult(PaymentCompletedEvent paymentEvent) {
+        return RideCompletionResult.builder()
+            .paymentId(paymentEvent.paymentId())
+            .rideId(paymentEvent.rideId())
+            .riderId(paymentEvent.riderId())
+            .driverId(paymentEvent.driverId())
+            .paymentMethod(paymentEvent.paymentMethod())
+            .amount(paymentEvent.amount())
+            .success(true)
+            .errorType("DuplicateEvent")
             .build();
     }
 
+    private String getDriverName(Map<String, AttributeValue> driver) {
+        if (driver != null && driver.containsKey("driverName")) {
+            return driver.get("driverName").s();
+        }
+        if (driver != null && driver.containsKey("name")) {
+            return driver.get("name").s();
+        }
+        return "Unknown Driver";
+    }
+
     public void validateEvent(PaymentCompletedEvent event) {
         if (event.rideId() == null || event.rideId().isEmpty()) {
             throw new IllegalArgumentException("RideId is required");
@@ -0,0 +1,175 @@
+package com.powertoolsride.ridecompletionservice.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.powertoolsride.ridecompletionservice.repository.DriverRepository;
+import com.powertoolsride.ridecompletionservice.repository.RideRepository;
+import com.powertoolsride.ridecompletionservice.repository.WaitlistRepository;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hands a freed driver to the highest-priority waitlisted ride and emits the
+ * same DriverAssigned event driver-matching-service would have published.
+ *
+ * The entry is leased, the driver moved to busy and the ride assigned before
+ * the event goes out; the entry is deleted only after that. If any step
+ * fails, the ones already done are undone and the entry goes back to the
+ * queue, so the ride is never lost.
+ */
+public class WaitlistDispatchService {
+    private final WaitlistRepository waitlistRepository;
+    private final RideRepository rideRepository;
+    private final DriverRepository driverRepository;
+    private final EventBridgeClient eventBridge;
+    private final ObjectMapper objectMapper;
+    private final String eventBusName;
+
+    public WaitlistDispatchService(WaitlistRepository waitlistRepository, RideRepository rideRepository,
+                                   DriverRepository driverRepository, EventBridgeClient eventBridge,
+                                   String eventBusName) {
+        this.waitlistRepository = waitlistRepository;
+        this.rideRepository = rideRepository;
+        this.driverRepository = driverRepository;
+        this.eventBridge = eventBridge;
+        this.eventBusName = eventBusName;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    /**
+     * Returns the rideId the driver was dispatched to, or null when no
+     * waitlisted ride could take the driver.
+     */
+    public String dispatchToDriver(String driverId, String driverName) {
+        String leaseToken = UUID.randomUUID().toString();
+        boolean driverClaimed = false;
+
+        try {
+            for (Map<String, AttributeValue> candidate : waitlistRepository.nextCandidates()) {
+                Map<String, AttributeValue> entry = waitlistRepository.tryLease(candidate, leaseToken);
+                if (entry == null) {
+                    continue;
+                }
+
+                if (!driverClaimed) {
+                    driverClaimed = claimDriver(driverId, entry);
+                    if (!driverClaimed) {
+                        // Someone else has taken the driver meanwhile
+                        return null;
+                    }
+                }
+
+                if (dispatch(entry, driverId, driverName)) {
+                    driverClaimed = false;
+                    return entry.get("rideId").s();
+                }
+            }
+            return null;
+        } finally {
+            if (driverClaimed) {
+                bestEffort("free driver " + driverId, () -> driverRepository.markAvailable(driverId));
+            }
+        }
+    }
+
+    private boolean claimDriver(String driverId, Map<String, AttributeValue> entry) {
+        boolean claimed;
+        try {
+            claimed = driverRepository.claimAvailableDriver(driverId);
+        } catch (RuntimeException e) {
+            bestEffort("release waitlist entry", () -> waitlistRepository.release(entry));
+            throw e;
+        }
+
+        if (!claimed) {
+            bestEffort("release waitlist entry", () -> waitlistRepository.release(entry));
+        }
+        return claimed;
+    }
+
+    /**
+     * Assigns the leased entry's ride to the driver and announces it. Returns
+     * false when the ride has left the waitlist, dropping its stale entry.
+     */
+    private boolean dispatch(Map<String, AttributeValue> entry, String driverId, String driverName) {
+        String rideId = entry.get("rideId").s();
+        boolean assigned = false;
+
+        try {
+            // Skip rides that were cancelled or matched elsewhere while waiting
+            if (!rideRepository.assignDriverToWaitlistedRide(rideId, driverId)) {
+                waitlistRepository.remove(entry);
+                return false;
+            }
+            assigned = true;
+            driverRepository.addActiveRide(driverId, rideId);
+
+            publishDriverAssignedEvent(entry.get("detail").s(), driverId, driverName);
+        } catch (RuntimeException e) {
+            if (assigned) {
+                bestEffort("return ride " + rideId + " to the waitlist", () -> rideRepository.returnRideToWaitlist(rideId, driverId));
+                bestEffort("take ride " + rideId + " off driver " + driverId, () -> driverRepository.removeActiveRide(driverId, rideId));
+            }
+            bestEffort("release waitlist entry", () -> waitlistRepository.release(entry));
+            throw e;
+        }
+
+        // The ride is out; a leftover entry is dropped as stale once its lease expires
+        bestEffort("remove waitlist entry for ride " + rideId, () -> waitlistRepository.remove(entry));
+        return true;
+    }
+
+    private static void bestEffort(String action, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            System.err.println("[WARN] Failed to " + action + ": " + e.getMessage());
+        }
+    }
+
+    public void publishDriverAssignedEvent(String priceCalculatedDetail, String driverId, String driverName) {
+        if (eventBusName == null || eventBusName.isEmpty()) {
+            return;
+        }
+
+        String eventDetailJson;
+        try {
+            ObjectNode detail = (ObjectNode) objectMapper.readTree(priceCalculatedDetail);
+            detail.put("eventType", "DriverAssigned");
+            detail.put("driverId", driverId);
+            detail.put("driverName", driverName);
+            detail.put("estimatedArrivalMinutes", 0);
+            detail.put("distanceKm", 0.0);
+            detail.put("timestamp", Instant.now().toString());
+            eventDetailJson = objectMapper.writeValueAsString(detail);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize event", e);
+        }
+
+        PutEventsRequestEntry entry = PutEventsRequestEntry.builder()
+            .source("ride-completion-service")
+            .detailType("DriverAssigned")
+            .detail(eventDetailJson)
+            .eventBusName(eventBusName)
+            .build();
+
+        PutEventsRequest request = PutEventsRequest.builder()
+            .entries(entry)
+            .build();
+
+        PutEventsResponse response = eventBridge.putEvents(request);
+
+        if (response.failedEntryCount() > 0) {
+            throw new RuntimeException("Failed to send event: " + response.entries().get(0).errorCode());
+        }
+    }
+}